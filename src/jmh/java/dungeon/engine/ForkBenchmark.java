@@ -0,0 +1,31 @@
+package dungeon.engine;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+
+// Cost of GameEngine.fork(), alone and followed by one move on the fork
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ForkBenchmark {
+    @Param({"10", "100", "1000"})
+    int size;
+
+    GameEngine engine;
+
+    @Setup
+    public void setup() {
+        engine = new GameEngine(5, size, 1L);
+    }
+
+    @Benchmark
+    public GameEngine fork() {
+        return engine.fork();
+    }
+
+    @Benchmark
+    public GameEngine forkAndMove() {
+        GameEngine fork = engine.fork();
+        fork.movePlayer(Direction.UP);
+        return fork;
+    }
+}
@@ -0,0 +1,37 @@
+package dungeon.engine;
+import org.openjdk.jmh.annotations.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Cost of new GameEngine(...), which builds and populates the first level,
+// and of placing items alone with reachability validation
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LevelGenerationBenchmark {
+    @Param({"10", "100", "1000"})
+    int size;
+
+    long seed;
+    Board board;
+    LevelGenerator validating;
+    Random random;
+
+    @Setup
+    public void setup() {
+        board = new Board(size);
+        validating = new LevelGenerator().setValidate(true);
+        random = new Random(1);
+    }
+
+    @Benchmark
+    public GameEngine newEngine() {
+        return new GameEngine(5, size, seed++);
+    }
+
+    // Items are placed on top of the previous level, which is fine for timing
+    @Benchmark
+    public boolean generateValidated() {
+        return validating.generate(board, size - 2, 1, 5, 100, random);
+    }
+}
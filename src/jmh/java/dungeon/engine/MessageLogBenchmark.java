@@ -0,0 +1,43 @@
+package dungeon.engine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Reading messages after a long history: a full copy with getMessages()
+// versus an incremental read of the latest step's messages with a cursor.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MessageLogBenchmark {
+    @Param({"256", "4096", "65536"})
+    int retention;
+
+    GameEngine engine;
+    long cursor;
+
+    @Setup
+    public void setUp() {
+        engine = new GameEngine(0, 10, 1L);
+        engine.setMessageRetention(retention);
+        for (int i = 0; i < retention * 2; i++) {
+            engine.emit(GameEvent.MOVED, i & 3, 0);
+        }
+        cursor = engine.getMessageLog().getSequence() - 2;
+    }
+
+    @Benchmark
+    public List<String> getMessages() {
+        return engine.getMessages();
+    }
+
+    @Benchmark
+    public long readNewMessages(Blackhole blackhole) {
+        return engine.getMessageLog().forEachSince(cursor, blackhole::consume);
+    }
+
+    @Benchmark
+    public void emit() {
+        engine.emit(GameEvent.MOVED, 0, 0);
+    }
+}
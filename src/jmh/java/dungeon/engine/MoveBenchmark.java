@@ -0,0 +1,35 @@
+package dungeon.engine;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+
+// Throughput of movePlayer on an empty board: the player walks back and
+// forth between two floor tiles and the step counter is reset so the game
+// never ends.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MoveBenchmark {
+    @Param({"10", "1000"})
+    int size;
+
+    GameEngine engine;
+    boolean up;
+
+    @Setup
+    public void setUp() {
+        engine = new GameEngine(0, size, 1L);
+        Board board = engine.getBoard();
+        for (int i = 1; i < size - 1; i++) {
+            for (int j = 1; j < size - 1; j++) {
+                board.setItemCode(i, j, Board.EMPTY);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean movePlayer() {
+        engine.steps = 0;
+        up = !up;
+        return engine.movePlayer(up ? Direction.UP : Direction.DOWN);
+    }
+}
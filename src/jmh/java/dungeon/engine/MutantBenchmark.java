@@ -0,0 +1,36 @@
+package dungeon.engine;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+
+// Cost of a move with chasing mutants on a large map full of them. Should
+// stay flat as the map and mutant count grow, since only nearby mutants move.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MutantBenchmark {
+    @Param({"100", "1000"})
+    int size;
+
+    @Param({"1000", "20000"})
+    int mutants;
+
+    GameEngine engine;
+    int turn;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        LevelGenerator generator = new LevelGenerator()
+                .setCount(Board.MELEE_MUTANT, mutants)
+                .setCount(Board.TRAP, 0);
+        engine = new GameEngine(0, size, 1L, generator);
+        engine.setMutantMovement(8);
+        engine.getPlayer().restore(1_000_000, 0);
+        engine.maxSteps = Integer.MAX_VALUE;
+    }
+
+    @Benchmark
+    public boolean moveWithChasers() {
+        // Walk back and forth so the game never ends
+        return engine.movePlayer((turn++ & 1) == 0 ? Direction.UP : Direction.DOWN);
+    }
+}
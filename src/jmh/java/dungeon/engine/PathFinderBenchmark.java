@@ -0,0 +1,34 @@
+package dungeon.engine;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+
+// Path queries against cached distance fields, and the cost of rebuilding
+// the fields after the board changes
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PathFinderBenchmark {
+    @Param({"10", "100", "1000"})
+    int size;
+
+    GameEngine engine;
+    PathFinder finder;
+
+    @Setup
+    public void setUp() {
+        engine = new GameEngine(5, size, 1L);
+        finder = new PathFinder();
+    }
+
+    @Benchmark
+    public Direction cachedHint() {
+        return finder.hint(engine);
+    }
+
+    @Benchmark
+    public Direction hintAfterChange() {
+        Board board = engine.getBoard();
+        board.setItemCode(0, 0, board.getItemCode(0, 0)); // bumps the board version
+        return finder.hint(engine);
+    }
+}
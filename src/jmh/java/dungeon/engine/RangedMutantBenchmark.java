@@ -0,0 +1,31 @@
+package dungeon.engine;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+
+// Cost of the ranged mutant check at several map sizes. It should not grow
+// with the size of the map.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RangedMutantBenchmark {
+    @Param({"10", "100", "1000"})
+    int size;
+
+    GameEngine engine;
+
+    @Setup
+    public void setUp() {
+        engine = new GameEngine(10, size, 1L);
+        Player player = engine.getPlayer();
+        player.setPosition(size / 2, size / 2);
+        engine.getBoard().setItemCode(size / 2 - 2, size / 2, Board.RANGED_MUTANT);
+        engine.getBoard().setItemCode(size / 2, size / 2 + 1, Board.RANGED_MUTANT);
+    }
+
+    @Benchmark
+    public int checkRangedMutantAttacks() {
+        engine.getPlayer().heal(10);
+        engine.checkRangedMutantAttacks();
+        return engine.getPlayer().getHp();
+    }
+}
@@ -0,0 +1,27 @@
+package dungeon.engine;
+import org.openjdk.jmh.annotations.*;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Full games played to the end with random moves, one game per operation
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SimulationBenchmark {
+    @Param({"0", "5", "10"})
+    int difficulty;
+
+    BatchSimulator simulator;
+    SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        simulator = new BatchSimulator(MovePolicy.RANDOM);
+        random = new SplittableRandom(1L);
+    }
+
+    @Benchmark
+    public GameEngine playGame() {
+        return simulator.playGame(difficulty, random);
+    }
+}
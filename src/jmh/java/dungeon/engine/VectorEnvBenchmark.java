@@ -0,0 +1,33 @@
+package dungeon.engine;
+import org.openjdk.jmh.annotations.*;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// One lockstep step of many games with random actions
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VectorEnvBenchmark {
+    @Param({"64", "4096"})
+    int envs;
+
+    VectorEnv env;
+    int[] actions;
+    SplittableRandom random;
+
+    @Setup
+    public void setup() {
+        env = new VectorEnv(envs, 5, 10, 1L);
+        actions = new int[envs];
+        random = new SplittableRandom(2);
+    }
+
+    @Benchmark
+    public int[] step() {
+        for (int i = 0; i < envs; i++) {
+            actions[i] = random.nextInt(4);
+        }
+        env.step(actions);
+        return env.getRewards();
+    }
+}
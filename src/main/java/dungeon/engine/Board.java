@@ -0,0 +1,245 @@
+package dungeon.engine;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Pure-data dungeon map. Every tile is a single byte indexed by x * size + y:
+// the low bits hold an item code and WALL marks a wall, so even very large
+// maps need no per-tile objects.
+//
+// Tiles are stored in pages so that fork() can share them: a fork copies
+// only the page table, and a page is copied the first time either board
+// writes to it while it is shared. A fork costs O(pages) and the first
+// change to a page O(page size), so pages are about sqrt(tiles) bytes
+// (at least 64) to keep both small on large maps.
+public class Board {
+    // Item codes
+    public static final byte EMPTY = 0;
+    public static final byte ENTRY = 1;
+    public static final byte LADDER = 2;
+    public static final byte GOLD = 3;
+    public static final byte HEALTH_POTION = 4;
+    public static final byte TRAP = 5;
+    public static final byte MELEE_MUTANT = 6;
+    public static final byte RANGED_MUTANT = 7;
+    public static final byte PLAYER = 8; // never stored on the board
+
+    // Tile flags
+    public static final byte WALL = 0x40;
+    public static final byte ITEM_MASK = 0x3F;
+
+    // Shared item instance for each code
+    private static final Item[] ITEMS = {
+            null, Entry.INSTANCE, Ladder.INSTANCE, Gold.INSTANCE, HealthPotion.INSTANCE,
+            Trap.INSTANCE, MeleeMutant.INSTANCE, RangedMutant.INSTANCE
+    };
+
+    // Largest size whose size * size tiles still fit in an int index
+    public static final int MAX_SIZE = 46340;
+
+    private static final int MIN_PAGE_BITS = 6;
+
+    private final int size;
+    private final int pageBits;
+    private final int pageMask;
+    private final byte[][] pages;
+    private final boolean[] shared; // page may also be used by another board
+    private TileListener tileListener;
+    // Told when a tile gains or loses a mutant, so the engine's Mutants index
+    // follows every change to the board. Not copied by fork().
+    private TileListener mutantListener;
+    private int version; // bumped on every tile change
+
+    public Board(int size) {
+        if (size < 1 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Invalid board size " + size);
+        }
+        this.size = size;
+        int tiles = size * size;
+        this.pageBits = Math.max(MIN_PAGE_BITS, (33 - Integer.numberOfLeadingZeros(tiles)) / 2);
+        this.pageMask = (1 << pageBits) - 1;
+        this.pages = new byte[(tiles + pageMask) >> pageBits][];
+        for (int p = 0; p < pages.length; p++) {
+            pages[p] = new byte[Math.min(1 << pageBits, tiles - (p << pageBits))];
+        }
+        this.shared = new boolean[pages.length];
+    }
+
+    private Board(Board other) {
+        this.size = other.size;
+        this.pageBits = other.pageBits;
+        this.pageMask = other.pageMask;
+        this.pages = other.pages.clone();
+        this.shared = new boolean[pages.length];
+        this.version = other.version;
+        Arrays.fill(shared, true);
+        Arrays.fill(other.shared, true);
+    }
+
+    // Independent copy sharing all tiles until one of the boards changes
+    // them. The copy has no tile listener.
+    public Board fork() {
+        return new Board(this);
+    }
+
+    public int getSize() { return size; }
+
+    // Changes every time a tile changes, so derived data can be cached
+    public int getVersion() { return version; }
+
+    public boolean inBounds(int x, int y) {
+        return x >= 0 && x < size && y >= 0 && y < size;
+    }
+
+    // Copy of every tile in index order
+    byte[] getTiles() {
+        byte[] tiles = new byte[size * size];
+        copyTiles(tiles, 0);
+        return tiles;
+    }
+
+    // Copies every tile in index order into dest, starting at offset
+    void copyTiles(byte[] dest, int offset) {
+        for (int p = 0; p < pages.length; p++) {
+            System.arraycopy(pages[p], 0, dest, offset + (p << pageBits), pages[p].length);
+        }
+    }
+
+    // Empties every tile so a new level can be built in place. The tile
+    // listener is not told, so callers redraw the whole board afterwards.
+    void clear() {
+        for (int p = 0; p < pages.length; p++) {
+            if (shared[p]) {
+                pages[p] = new byte[pages[p].length];
+                shared[p] = false;
+            } else {
+                Arrays.fill(pages[p], (byte) 0);
+            }
+        }
+        version++;
+    }
+
+    // Bulk copies of every tile in index order, for saving and loading
+    void writeTiles(ByteBuffer buffer) {
+        for (byte[] page : pages) {
+            buffer.put(page);
+        }
+    }
+
+    void readTiles(ByteBuffer buffer) {
+        for (int p = 0; p < pages.length; p++) {
+            if (shared[p]) {
+                pages[p] = new byte[pages[p].length];
+                shared[p] = false;
+            }
+            buffer.get(pages[p]);
+        }
+        version++;
+    }
+
+    public byte getTile(int x, int y) {
+        return tileAt(x * size + y);
+    }
+
+    // Tile at index x * size + y
+    byte tileAt(int i) {
+        return pages[i >> pageBits][i & pageMask];
+    }
+
+    // Page holding tile i, copied first if it is shared
+    private byte[] writablePage(int i) {
+        int p = i >> pageBits;
+        if (shared[p]) {
+            pages[p] = pages[p].clone();
+            shared[p] = false;
+        }
+        return pages[p];
+    }
+
+    // Index (x * size + y) of the first tile holding the item, or -1
+    int indexOf(byte code) {
+        for (int p = 0; p < pages.length; p++) {
+            byte[] page = pages[p];
+            for (int k = 0; k < page.length; k++) {
+                if ((page[k] & ITEM_MASK) == code) {
+                    return (p << pageBits) + k;
+                }
+            }
+        }
+        return -1;
+    }
+
+    public byte getItemCode(int x, int y) {
+        return (byte) (tileAt(x * size + y) & ITEM_MASK);
+    }
+
+    public boolean isWall(int x, int y) {
+        return (tileAt(x * size + y) & WALL) != 0;
+    }
+
+    public void setWall(int x, int y, boolean isWall) {
+        int i = x * size + y;
+        byte[] page = writablePage(i);
+        int k = i & pageMask;
+        page[k] = (byte) (isWall ? page[k] | WALL : page[k] & ~WALL);
+        version++;
+        if (tileListener != null) {
+            tileListener.tileChanged(x, y);
+        }
+    }
+
+    public Item getItem(int x, int y) {
+        return ITEMS[tileAt(x * size + y) & ITEM_MASK];
+    }
+
+    static Item itemFor(byte code) {
+        return ITEMS[code];
+    }
+
+    public void setItem(int x, int y, Item item) {
+        setItemCode(x, y, item == null ? EMPTY : item.getCode());
+    }
+
+    // Only item codes EMPTY to RANGED_MUTANT can be stored; the player and
+    // anything else is rejected rather than left to break getItem later
+    public void setItemCode(int x, int y, byte code) {
+        if (code < EMPTY || code >= ITEMS.length) {
+            throw new IllegalArgumentException("Not a board item code: " + code);
+        }
+        int i = x * size + y;
+        byte[] page = writablePage(i);
+        int k = i & pageMask;
+        int old = page[k] & ITEM_MASK;
+        page[k] = (byte) ((page[k] & WALL) | code);
+        version++;
+        if (mutantListener != null && old != code && (isMutant(old) || isMutant(code))) {
+            mutantListener.tileChanged(x, y);
+        }
+        if (tileListener != null) {
+            tileListener.tileChanged(x, y);
+        }
+    }
+
+    // Listener told about every later tile change, or null for none
+    public void setTileListener(TileListener tileListener) {
+        this.tileListener = tileListener;
+    }
+
+    void setMutantListener(TileListener mutantListener) {
+        this.mutantListener = mutantListener;
+    }
+
+    static boolean isMutant(int code) {
+        return code == MELEE_MUTANT || code == RANGED_MUTANT;
+    }
+
+    // Symbol of the item on a tile, or null if the tile is empty
+    public String getSymbol(int x, int y) {
+        return symbolFor(getItemCode(x, y));
+    }
+
+    // Symbol of the item with the given code, or null for EMPTY
+    public static String symbolFor(byte code) {
+        Item item = ITEMS[code];
+        return item == null ? null : item.getSymbol();
+    }
+}
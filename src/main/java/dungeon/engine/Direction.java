@@ -0,0 +1,22 @@
+/*
+ * Direction.java
+ * Author: Max Faulks
+ * 30 / 05 / 25
+ * Portions of this script were generated or assisted by OpenAI's ChatGPT.
+*/
+package dungeon.engine;
+
+// Direction enum
+public enum Direction {
+    UP(-1, 0), DOWN(1, 0), LEFT(0, -1), RIGHT(0, 1);
+
+    private final int dx, dy;
+
+    Direction(int dx, int dy) {
+        this.dx = dx;
+        this.dy = dy;
+    }
+
+    public int getDx() { return dx; }
+    public int getDy() { return dy; }
+}
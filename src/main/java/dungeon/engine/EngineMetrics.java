@@ -0,0 +1,125 @@
+package dungeon.engine;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters and latency histograms for what engines are doing. Everything is
+// a LongAdder (striped, no locks), so one instance can be shared by every
+// engine in a process, e.g. all server sessions. Engines without metrics
+// skip the timing calls entirely.
+public class EngineMetrics {
+    private static final GameEvent[] EVENTS = GameEvent.values();
+    private static final int DIFFICULTIES = 11;
+
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder blockedMoves = new LongAdder();
+    private final LatencyHistogram moveLatency = new LatencyHistogram();
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+    // Time spent generating each level, on whichever thread built it
+    private final LatencyHistogram levelLatency = new LatencyHistogram();
+    private final LongAdder[] interactions = adders(Board.PLAYER);
+    private final LongAdder[] events = adders(EVENTS.length);
+    // Game over events by starting difficulty, indexed [difficulty * EVENTS.length + event]
+    private final LongAdder[] outcomes = adders(DIFFICULTIES * EVENTS.length);
+    private final LongAccumulator maxRetainedMessages = new LongAccumulator(Math::max, 0);
+
+    private static LongAdder[] adders(int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    void recordMove(boolean moved, long nanos, int retainedMessages) {
+        if (moved) {
+            moves.increment();
+        } else {
+            blockedMoves.increment();
+        }
+        moveLatency.record(nanos);
+        maxRetainedMessages.accumulate(retainedMessages);
+    }
+
+    // A whole batch is timed once, so its moves are counted but not in moveLatency
+    void recordBatch(int played, int moved, long nanos, int retainedMessages) {
+        moves.add(moved);
+        blockedMoves.add(played - moved);
+        batchLatency.record(nanos);
+        maxRetainedMessages.accumulate(retainedMessages);
+    }
+
+    void recordLevel(long nanos) {
+        levelLatency.record(nanos);
+    }
+
+    void recordInteraction(byte code) {
+        interactions[code].increment();
+    }
+
+    // Every event written to the message log
+    void recordEvent(GameEvent event, int startingDifficulty) {
+        events[event.ordinal()].increment();
+        if (event.getCategory() == GameEvent.Category.GAME_OVER) {
+            outcomes[startingDifficulty * EVENTS.length + event.ordinal()].increment();
+        }
+    }
+
+    public long getMoves() { return moves.sum(); }
+    public long getBlockedMoves() { return blockedMoves.sum(); }
+    public LatencyHistogram getMoveLatency() { return moveLatency; }
+    public LatencyHistogram getBatchLatency() { return batchLatency; }
+    public LatencyHistogram getLevelLatency() { return levelLatency; }
+    public long getInteractions(byte code) { return interactions[code].sum(); }
+    public long getEvents(GameEvent event) { return events[event.ordinal()].sum(); }
+    public long getMaxRetainedMessages() { return maxRetainedMessages.get(); }
+
+    // Number of games with the given starting difficulty that ended with the
+    // given GAME_OVER event (WON, DIED or OUT_OF_STEPS)
+    public long getOutcomes(int difficulty, GameEvent event) {
+        return outcomes[difficulty * EVENTS.length + event.ordinal()].sum();
+    }
+
+    public long getMessagesLogged() {
+        long total = 0;
+        for (LongAdder adder : events) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    // Current values by name, in a fixed order. Counters that are still zero
+    // are left out of the per-type and per-difficulty groups.
+    public Map<String, Long> snapshot() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        values.put("moves", getMoves());
+        values.put("moves.blocked", getBlockedMoves());
+        putLatency(values, "move", moveLatency);
+        putLatency(values, "batch", batchLatency);
+        putLatency(values, "level", levelLatency);
+        for (byte code = Board.LADDER; code < Board.PLAYER; code++) {
+            long n = interactions[code].sum();
+            if (n > 0) {
+                values.put("interact." + Board.itemFor(code).getName().toLowerCase().replace(' ', '_'), n);
+            }
+        }
+        for (int d = 0; d < DIFFICULTIES; d++) {
+            for (GameEvent event : EVENTS) {
+                long n = outcomes[d * EVENTS.length + event.ordinal()].sum();
+                if (n > 0) {
+                    values.put("outcome.d" + d + "." + event.name().toLowerCase(), n);
+                }
+            }
+        }
+        values.put("messages.logged", getMessagesLogged());
+        values.put("messages.max_retained", getMaxRetainedMessages());
+        return values;
+    }
+
+    private static void putLatency(Map<String, Long> values, String name, LatencyHistogram histogram) {
+        values.put(name + ".count", histogram.getCount());
+        values.put(name + ".p50_ns", histogram.getPercentile(50));
+        values.put(name + ".p99_ns", histogram.getPercentile(99));
+    }
+}
@@ -0,0 +1,203 @@
+package dungeon.engine;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// What the player can see and has seen on the current level. Visibility is
+// found with recursive shadowcasting over the eight octants around the
+// player, out to a circular radius; walls block sight, items do not.
+//
+// Both masks are bitsets with one bit per tile, bit (x * size + y), in
+// long[] words (tile i is word i >> 6, bit i & 63). The tiles lit by the last
+// update are also kept in a list, so the next update only clears those and
+// casts again around the new position: a step costs time in proportion to
+// the area within the radius, never to the map area.
+public class FogOfWar {
+    // Octant transforms (xx, xy, yx, yy), from the roguebasin formulation
+    private static final int[] OCTANTS = {
+            1, 0, 0, 1,
+            0, 1, 1, 0,
+            0, -1, 1, 0,
+            -1, 0, 0, 1,
+            -1, 0, 0, -1,
+            0, -1, -1, 0,
+            0, 1, -1, 0,
+            1, 0, 0, -1
+    };
+
+    private final int size;
+    private final int radius;
+    private final long[] visible;
+    private final long[] explored;
+    // Previous visible bits, only set while an update runs
+    private final long[] before;
+
+    // Tiles lit by the last update, and the ones lit by the update before
+    private int[] lit = new int[64];
+    private int litCount;
+    private int[] previous = new int[64];
+
+    private Board board;
+
+    public FogOfWar(int size, int radius) {
+        if (radius < 1) {
+            throw new IllegalArgumentException("Invalid sight radius " + radius);
+        }
+        this.size = size;
+        this.radius = radius;
+        int words = (size * size + 63) >> 6;
+        this.visible = new long[words];
+        this.explored = new long[words];
+        this.before = new long[words];
+    }
+
+    public int getRadius() { return radius; }
+    public int getSize() { return size; }
+
+    // Live masks, updated in place by every step
+    public long[] getVisible() { return visible; }
+    public long[] getExplored() { return explored; }
+
+    public boolean isVisible(int x, int y) {
+        return get(visible, x * size + y);
+    }
+
+    public boolean isExplored(int x, int y) {
+        return get(explored, x * size + y);
+    }
+
+    // Number of tiles currently visible
+    public int getVisibleCount() { return litCount; }
+
+    // Forgets everything, e.g. on a new level
+    public void reset() {
+        Arrays.fill(visible, 0);
+        Arrays.fill(explored, 0);
+        litCount = 0;
+    }
+
+    // Recomputes what is visible from (px, py). Tiles that came into or went
+    // out of sight are reported to the listener, if there is one, so a
+    // renderer only has to redraw those.
+    public void update(Board board, int px, int py, TileListener listener) {
+        this.board = board;
+
+        // Swap the lit lists and clear the old visible bits, remembering them
+        int[] swap = previous;
+        previous = lit;
+        lit = swap;
+        int previousCount = litCount;
+        litCount = 0;
+        for (int k = 0; k < previousCount; k++) {
+            int i = previous[k];
+            set(before, i);
+            visible[i >> 6] &= ~(1L << i);
+        }
+
+        light(px, py);
+        for (int octant = 0; octant < OCTANTS.length; octant += 4) {
+            cast(px, py, 1, 1.0, 0.0,
+                    OCTANTS[octant], OCTANTS[octant + 1], OCTANTS[octant + 2], OCTANTS[octant + 3]);
+        }
+
+        // Report tiles whose visibility changed, then clear the scratch bits
+        if (listener != null) {
+            for (int k = 0; k < previousCount; k++) {
+                int i = previous[k];
+                if (!get(visible, i)) {
+                    listener.tileChanged(i / size, i % size);
+                }
+            }
+            for (int k = 0; k < litCount; k++) {
+                int i = lit[k];
+                if (!get(before, i)) {
+                    listener.tileChanged(i / size, i % size);
+                }
+            }
+        }
+        for (int k = 0; k < previousCount; k++) {
+            before[previous[k] >> 6] = 0;
+        }
+    }
+
+    // Scans one octant row by row outwards from the origin between two
+    // slopes, narrowing the view and recursing around each run of walls
+    private void cast(int cx, int cy, int row, double start, double end, int xx, int xy, int yx, int yy) {
+        if (start < end) {
+            return;
+        }
+        int radiusSquared = radius * radius + radius; // rounder edge than r*r
+        double newStart = 0;
+        for (int j = row; j <= radius; j++) {
+            boolean blocked = false;
+            for (int dx = -j, dy = -j; dx <= 0; dx++) {
+                double leftSlope = (dx - 0.5) / (dy + 0.5);
+                double rightSlope = (dx + 0.5) / (dy - 0.5);
+                if (start < rightSlope) {
+                    continue;
+                }
+                if (end > leftSlope) {
+                    break;
+                }
+
+                int x = cx + dx * xx + dy * xy;
+                int y = cy + dx * yx + dy * yy;
+                boolean inBounds = board.inBounds(x, y);
+                if (inBounds && dx * dx + dy * dy <= radiusSquared) {
+                    light(x, y);
+                }
+
+                boolean opaque = !inBounds || board.isWall(x, y);
+                if (blocked) {
+                    if (opaque) {
+                        newStart = rightSlope;
+                    } else {
+                        blocked = false;
+                        start = newStart;
+                    }
+                } else if (opaque && j < radius) {
+                    blocked = true;
+                    cast(cx, cy, j + 1, start, leftSlope, xx, xy, yx, yy);
+                    newStart = rightSlope;
+                }
+            }
+            if (blocked) {
+                break;
+            }
+        }
+    }
+
+    private void light(int x, int y) {
+        int i = x * size + y;
+        if (get(visible, i)) {
+            return; // octant edges are shared
+        }
+        visible[i >> 6] |= 1L << i;
+        explored[i >> 6] |= 1L << i;
+        if (litCount == lit.length) {
+            lit = Arrays.copyOf(lit, litCount * 2);
+        }
+        lit[litCount++] = i;
+    }
+
+    // Explored mask of a saved game, one long per word
+    void writeExplored(ByteBuffer buffer) {
+        for (long word : explored) {
+            buffer.putLong(word);
+        }
+    }
+
+    // Replaces the explored mask; call update afterwards to see again
+    void readExplored(ByteBuffer buffer) {
+        for (int i = 0; i < explored.length; i++) {
+            explored[i] = buffer.getLong();
+        }
+    }
+
+    private static boolean get(long[] bits, int i) {
+        return (bits[i >> 6] & 1L << i) != 0;
+    }
+
+    private static void set(long[] bits, int i) {
+        bits[i >> 6] |= 1L << i;
+    }
+}
@@ -6,13 +6,21 @@
 */
 
 package dungeon.engine;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 
-// Base Item interface
+// Base Item interface. Items on the board are stored as their code (see
+// Board) and shared as one stateless INSTANCE per type.
 interface Item {
     String getSymbol();
     String getName();
+    byte getCode();
+    boolean isConsumable(); // removed from the board after interacting
     void interact(Player player, GameEngine engine);
 }
 
@@ -36,6 +44,12 @@ class Player implements Item {
     @Override
     public String getName() { return "Player"; }
 
+    @Override
+    public byte getCode() { return Board.PLAYER; }
+
+    @Override
+    public boolean isConsumable() { return false; }
+
     @Override
     public void interact(Player player, GameEngine engine) {
         // Player doesn't interact with itself
@@ -64,16 +78,32 @@ class Player implements Item {
     public void heal(int amount) {
         this.hp = Math.min(maxHp, this.hp + amount);
     }
+
+    // Used when restoring a saved game
+    void restore(int hp, int score) {
+        this.hp = hp;
+        this.score = score;
+    }
 }
 
 // Entry point
 class Entry implements Item {
+    static final Entry INSTANCE = new Entry();
+
+    private Entry() {}
+
     @Override
     public String getSymbol() { return "E"; }
 
     @Override
     public String getName() { return "Entry"; }
 
+    @Override
+    public byte getCode() { return Board.ENTRY; }
+
+    @Override
+    public boolean isConsumable() { return false; }
+
     @Override
     public void interact(Player player, GameEngine engine) {
         // Entry point - no interaction needed
@@ -82,12 +112,22 @@ class Entry implements Item {
 
 // Ladder
 class Ladder implements Item {
+    static final Ladder INSTANCE = new Ladder();
+
+    private Ladder() {}
+
     @Override
     public String getSymbol() { return "L"; }
 
     @Override
     public String getName() { return "Ladder"; }
 
+    @Override
+    public byte getCode() { return Board.LADDER; }
+
+    @Override
+    public boolean isConsumable() { return false; }
+
     @Override
     public void interact(Player player, GameEngine engine) {
         engine.advanceLevel();
@@ -96,69 +136,113 @@ class Ladder implements Item {
 
 // Gold
 class Gold implements Item {
+    static final Gold INSTANCE = new Gold();
+
+    private Gold() {}
+
     @Override
     public String getSymbol() { return "G"; }
 
     @Override
     public String getName() { return "Gold"; }
 
+    @Override
+    public byte getCode() { return Board.GOLD; }
+
+    @Override
+    public boolean isConsumable() { return true; }
+
     @Override
     public void interact(Player player, GameEngine engine) {
         player.addScore(2);
-        engine.addMessage("You picked up gold! (+2 score)");
+        engine.emit(GameEvent.GOLD_PICKED_UP, 2, 0);
     }
 }
 
 // Health Potion
 class HealthPotion implements Item {
+    static final HealthPotion INSTANCE = new HealthPotion();
+
+    private HealthPotion() {}
+
     @Override
     public String getSymbol() { return "H"; }
 
     @Override
     public String getName() { return "Health Potion"; }
 
+    @Override
+    public byte getCode() { return Board.HEALTH_POTION; }
+
+    @Override
+    public boolean isConsumable() { return true; }
+
     @Override
     public void interact(Player player, GameEngine engine) {
         int oldHp = player.getHp();
         player.heal(4);
         int healedAmount = player.getHp() - oldHp;
-        engine.addMessage("You drank a health potion! (+" + healedAmount + " HP)");
+        engine.emit(GameEvent.POTION_DRUNK, healedAmount, 0);
     }
 }
 
 // Trap
 class Trap implements Item {
+    static final Trap INSTANCE = new Trap();
+
+    private Trap() {}
+
     @Override
     public String getSymbol() { return "T"; }
 
     @Override
     public String getName() { return "Trap"; }
 
+    @Override
+    public byte getCode() { return Board.TRAP; }
+
+    @Override
+    public boolean isConsumable() { return false; }
+
     @Override
     public void interact(Player player, GameEngine engine) {
         player.takeDamage(2);
-        engine.addMessage("You fell into a trap! (-2 HP)");
+        engine.emit(GameEvent.TRAP_TRIGGERED, 2, 0);
     }
 }
 
 // Melee Mutant
 class MeleeMutant implements Item {
+    static final MeleeMutant INSTANCE = new MeleeMutant();
+
+    private MeleeMutant() {}
+
     @Override
     public String getSymbol() { return "M"; }
 
     @Override
     public String getName() { return "Melee Mutant"; }
 
+    @Override
+    public byte getCode() { return Board.MELEE_MUTANT; }
+
+    @Override
+    public boolean isConsumable() { return true; }
+
     @Override
     public void interact(Player player, GameEngine engine) {
         player.takeDamage(2);
         player.addScore(2);
-        engine.addMessage("You fought a melee mutant! (-2 HP, +2 score)");
+        engine.emit(GameEvent.MELEE_MUTANT_FOUGHT, 2, 2);
     }
 }
 
 // Ranged Mutant
 class RangedMutant implements Item {
+    static final RangedMutant INSTANCE = new RangedMutant();
+
+    private RangedMutant() {}
+
     @Override
     public String getSymbol() { return "R"; }
 
@@ -166,159 +250,426 @@ class RangedMutant implements Item {
     public String getName() { return "Ranged Mutant"; }
 
     @Override
-    public void interact(Player player, GameEngine engine) {
-        player.addScore(2);
-        engine.addMessage("You defeated a ranged mutant! (+2 score)");
-    }
-}
-
-// Game state enum
-enum GameState {
-    PLAYING, WON, LOST
-}
+    public byte getCode() { return Board.RANGED_MUTANT; }
 
-// Direction enum
-enum Direction {
-    UP(-1, 0), DOWN(1, 0), LEFT(0, -1), RIGHT(0, 1);
-
-    private final int dx, dy;
+    @Override
+    public boolean isConsumable() { return true; }
 
-    Direction(int dx, int dy) {
-        this.dx = dx;
-        this.dy = dy;
+    @Override
+    public void interact(Player player, GameEngine engine) {
+        player.addScore(2);
+        engine.emit(GameEvent.RANGED_MUTANT_DEFEATED, 2, 0);
     }
-
-    public int getDx() { return dx; }
-    public int getDy() { return dy; }
 }
 
 // Main Game Engine
 public class GameEngine {
-    protected Cell[][] map;
+    protected Board map;
     protected Player player;
     protected int currentLevel;
     protected int difficulty;
     protected int steps;
     protected int maxSteps;
     protected GameState gameState;
-    protected Random random;
-    protected List<String> messages;
-
-    // Entry positions for each level
-    private int entryX, entryY;
+    protected GameRandom random;
+    // A fork has no GameRandom until it rolls, only the state to start it from
+    private long forkedRandomState;
+    protected long seed;
+    protected MessageLog messages;
+    protected GameListener[] listeners = NO_LISTENERS;
+    protected TileListener tileListener;
+    protected LevelGenerator generator;
+    // True while a fork still uses its parent's generator, which it only reads
+    private boolean sharedGenerator;
+    protected LevelPool levelPool;
+    protected EngineMetrics metrics;
+    protected int levelCount = 2;
+    protected int stepsPerLevel;
+    protected int mutantRadius;
+    Mutants mutants;
+    // Passes mutants placed on or removed from the board on to the index
+    final TileListener mutantTracker = (x, y) -> {
+        if (mutants != null) {
+            ownMutants().tileChanged(x, y);
+        }
+    };
+    protected FogOfWar fog;
+    private CompletableFuture<LevelPool.BuiltLevel> nextLevel;
+    // Build time of the current level if no metrics were set to record it, else -1
+    private long unrecordedLevelNanos = -1;
+    // Settings the prefetched level was built with
+    private int nextLevelNumber, nextDifficulty, nextMaxSteps, nextEntryX, nextEntryY;
+    private long nextSeed;
+
+    public static final int DEFAULT_SIZE = 10;
+    public static final int MIN_SIZE = 4;
+    public static final int MAX_SIZE = Board.MAX_SIZE;
+    public static final int ENDLESS = Integer.MAX_VALUE;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final GameListener[] NO_LISTENERS = new GameListener[0];
+
+    // (dx, dy) pairs of the tiles a ranged mutant can attack from
+    private static final int[] RANGED_OFFSETS = {
+            -2, 0, -1, 0, 0, -2, 0, -1, 0, 1, 0, 2, 1, 0, 2, 0
+    };
+
+    protected int size;
+
+    // Where the player starts on the current level, and where the next one starts
+    int entryX, entryY;
+    int ladderX, ladderY;
 
     public GameEngine(int difficulty) {
+        this(difficulty, DEFAULT_SIZE);
+    }
+
+    public GameEngine(int difficulty, int size) {
+        this(difficulty, size, new Random().nextLong());
+    }
+
+    // Seeded game: the same seed always produces the same levels and
+    // ranged mutant rolls for the same sequence of moves
+    public GameEngine(int difficulty, int size, long seed) {
+        this(difficulty, size, seed, new LevelGenerator());
+    }
+
+    // Seeded game with custom item counts or level validation. The
+    // generator must not be shared with engines on other threads.
+    public GameEngine(int difficulty, int size, long seed, LevelGenerator generator) {
+        if (size > MAX_SIZE) {
+            throw new IllegalArgumentException("Map size " + size + " is larger than " + MAX_SIZE);
+        }
         this.difficulty = Math.max(0, Math.min(10, difficulty)); // Clamp between 0-10
+        this.size = Math.max(MIN_SIZE, size);
         this.maxSteps = 100;
         this.steps = 0;
         this.currentLevel = 1;
         this.gameState = GameState.PLAYING;
-        this.random = new Random();
-        this.messages = new ArrayList<>();
+        this.seed = seed;
+        this.random = new GameRandom(seed);
+        this.messages = new MessageLog();
+        this.generator = generator;
+
+        // Bottom left (but accounting for walls, it's size-2,1)
+        this.entryX = this.size - 1;
+        this.entryY = 1;
+        initializeLevel(null);
+    }
 
-        initializeLevel();
+    // Starts a new game with the given seed in this engine, keeping its
+    // settings, listeners, metrics and message log. The board is cleared and
+    // refilled in place, so playing game after game in one engine allocates
+    // almost nothing. The difficulty goes back to the starting difficulty.
+    void reset(long seed) {
+        this.difficulty = getStartingDifficulty();
+        this.maxSteps = 100;
+        this.steps = 0;
+        this.currentLevel = 1;
+        this.gameState = GameState.PLAYING;
+        this.seed = seed;
+        random().setSeed(seed);
+        player.restore(player.getMaxHp(), 0);
+        this.entryX = size - 1;
+        this.entryY = 1;
+        initializeLevel(map);
+    }
+
+    // Copy of a game for lookahead, see fork(). Only the board's page table
+    // and the player are copied; the generator and mutants are shared until
+    // the fork changes them, and the message log is made on first use.
+    private GameEngine(GameEngine parent) {
+        this.map = parent.map.fork();
+        this.map.setMutantListener(mutantTracker);
+        this.player = new Player(parent.player.getX(), parent.player.getY());
+        this.player.restore(parent.player.getHp(), parent.player.getScore());
+        this.currentLevel = parent.currentLevel;
+        this.difficulty = parent.difficulty;
+        this.steps = parent.steps;
+        this.maxSteps = parent.maxSteps;
+        this.gameState = parent.gameState;
+        this.forkedRandomState = parent.getRandomState();
+        this.seed = parent.seed;
+        this.generator = parent.generator;
+        this.sharedGenerator = true;
+        this.levelCount = parent.levelCount;
+        this.stepsPerLevel = parent.stepsPerLevel;
+        this.mutantRadius = parent.mutantRadius;
+        this.mutants = parent.mutants == null ? null : parent.mutants.share();
+        this.size = parent.size;
+        this.entryX = parent.entryX;
+        this.entryY = parent.entryY;
+        this.ladderX = parent.ladderX;
+        this.ladderY = parent.ladderY;
     }
 
-    private void initializeLevel() {
-        map = new Cell[10][10];
+    // Independent copy of the game in its current state, for bots that look
+    // ahead. The board is shared copy-on-write, so forking is cheap and each
+    // fork only copies the pages it changes. Forks continue with the same
+    // random state, keep only the last message, and have no listeners,
+    // metrics, level pool or fog of war. Call fork() on the thread that owns this engine;
+    // the fork may then be used on any thread.
+    public GameEngine fork() {
+        return new GameEngine(this);
+    }
+
+    // Engine with no level, filled in by GameSnapshot when loading a save
+    GameEngine(int size, MessageLog messages) {
+        this.size = size;
+        this.maxSteps = 100;
+        this.gameState = GameState.PLAYING;
+        this.random = new GameRandom(0);
+        this.messages = messages;
+        this.generator = new LevelGenerator();
+    }
 
-        // Initialize all cells
-        for (int i = 0; i < 10; i++) {
-            for (int j = 0; j < 10; j++) {
-                map[i][j] = new Cell();
+    // Builds the level for the current entry, in the given board if there is
+    // one, otherwise in a new board
+    private void initializeLevel(Board reuse) {
+        // Take the prefetched level if it was built for this entry, otherwise
+        // build it now. A closed pool won't finish what it hasn't started, and
+        // a level that failed on the pool is built again here so the same
+        // error is thrown on this thread.
+        LevelPool.BuiltLevel built = null;
+        if (isPrefetched(currentLevel, difficulty, maxSteps, entryX, entryY)) {
+            if (!nextLevel.isDone() && (levelPool == null || levelPool.isClosed())) {
+                nextLevel.cancel(false);
             }
+            try {
+                built = nextLevel.join();
+            } catch (CancellationException | CompletionException e) {
+                built = null;
+            }
+        } else if (nextLevel != null) {
+            nextLevel.cancel(false);
         }
-
-        // Create walls around the perimeter
-        for (int i = 0; i < 10; i++) {
-            map[0][i].setWall(true);
-            map[9][i].setWall(true);
-            map[i][0].setWall(true);
-            map[i][9].setWall(true);
+        long levelNanos;
+        if (built != null) {
+            map = built.board;
+            levelNanos = built.nanos;
+        } else {
+            long start = System.nanoTime();
+            if (reuse != null) {
+                reuse.setTileListener(null); // the whole board is reported as new anyway
+                reuse.setMutantListener(null);
+                reuse.clear();
+                fillLevel(reuse, currentLevel, difficulty, maxSteps, seed, ownGenerator(), entryX, entryY);
+                map = reuse;
+            } else {
+                map = buildLevel(size, currentLevel, difficulty, maxSteps, seed, ownGenerator(), entryX, entryY);
+            }
+            levelNanos = System.nanoTime() - start;
         }
-
-        // Set entry position
-        if (currentLevel == 1) {
-            entryX = 9; // Bottom left (but accounting for walls, it's 8,1)
-            entryY = 1;
+        nextLevel = null;
+        // Level 1 is built by the constructor, before metrics can be set
+        if (metrics != null) {
+            metrics.recordLevel(levelNanos);
+            unrecordedLevelNanos = -1;
         } else {
-            // Level 2 entry is same as Level 1 ladder position
-            entryX = 8;
-            entryY = 8;
+            unrecordedLevelNanos = levelNanos;
         }
-
-        // Place entry
-        map[entryX][entryY].setItem(new Entry());
+        mutants = mutantRadius > 0 ? new Mutants(map, mutantRadius) : null;
+        map.setMutantListener(mutantTracker);
 
         // Create and place player
-        if (currentLevel == 1) {
+        if (player == null) {
             player = new Player(entryX, entryY);
         } else {
             player.setPosition(entryX, entryY);
         }
+        findLadder();
+        if (fog != null) {
+            // The level is redrawn on LEVEL_STARTED, so no need to report tiles
+            fog.reset();
+            fog.update(map, entryX, entryY, null);
+        }
 
-        // Place items randomly
-        placeItemsRandomly();
+        // Only report tile changes made after the level is built
+        map.setTileListener(tileListener);
 
-        addMessage("Level " + currentLevel + " started! Difficulty: " +
-                (difficulty + (currentLevel == 2 ? 2 : 0)));
+        emit(GameEvent.LEVEL_STARTED, currentLevel, difficulty + (currentLevel >= 2 ? 2 : 0));
+        prefetchNextLevel();
     }
 
-    private void placeItemsRandomly() {
-        List<int[]> availablePositions = new ArrayList<>();
+    // Builds the walls, entry and items of a level. The layout depends only
+    // on the seed, level number and entry, never on the moves played, so a
+    // level can be built ahead of time on another thread. Throws
+    // IllegalStateException if the generator validates levels and none of
+    // its attempts gave a playable one.
+    static Board buildLevel(int size, int level, int difficulty, int maxSteps, long seed, LevelGenerator generator,
+                            int entryX, int entryY) {
+        Board board = new Board(size);
+        fillLevel(board, level, difficulty, maxSteps, seed, generator, entryX, entryY);
+        return board;
+    }
 
-        // Find all available positions (not walls, not entry)
-        for (int i = 1; i < 9; i++) {
-            for (int j = 1; j < 9; j++) {
-                if (!(i == entryX && j == entryY)) {
-                    availablePositions.add(new int[]{i, j});
-                }
-            }
+    // Same as buildLevel, into an empty board
+    static void fillLevel(Board board, int level, int difficulty, int maxSteps, long seed, LevelGenerator generator,
+                          int entryX, int entryY) {
+        int size = board.getSize();
+
+        // Create walls around the perimeter
+        for (int i = 0; i < size; i++) {
+            board.setWall(0, i, true);
+            board.setWall(size - 1, i, true);
+            board.setWall(i, 0, true);
+            board.setWall(i, size - 1, true);
         }
 
-        Collections.shuffle(availablePositions, random);
-        int index = 0;
+        board.setItemCode(entryX, entryY, Board.ENTRY);
 
-        // Place ladder
-        int[] pos = availablePositions.get(index++);
-        map[pos[0]][pos[1]].setItem(new Ladder());
+        // Place items randomly, with a random of their own per level
+        Random levelRandom = new Random(seed + level * 0x9E3779B97F4A7C15L);
+        if (!generator.generate(board, entryX, entryY, difficulty + (level >= 2 ? 2 : 0), maxSteps, levelRandom)) {
+            throw new IllegalStateException("No level " + level + " with a reachable ladder after "
+                    + generator.getMaxAttempts() + " attempts");
+        }
+    }
 
-        // Place items based on difficulty
-        int actualDifficulty = difficulty + (currentLevel == 2 ? 2 : 0);
+    // Remembers where the current level's ladder is, which is where the next
+    // level starts. Levels without a ladder hand over bottom right.
+    void findLadder() {
+        int index = map.indexOf(Board.LADDER);
+        ladderX = index >= 0 ? index / size : size - 2;
+        ladderY = index >= 0 ? index % size : size - 2;
+    }
 
-        // Place traps (5)
-        for (int i = 0; i < 5 && index < availablePositions.size(); i++) {
-            pos = availablePositions.get(index++);
-            map[pos[0]][pos[1]].setItem(new Trap());
+    // Sets how many levels the game has (ENDLESS for no limit) and how many
+    // steps are added to the budget on each new level. The classic game is
+    // 2 levels sharing 100 steps.
+    public void setDungeonDepth(int levels, int stepsPerLevel) {
+        if (levels < 1 || stepsPerLevel < 0) {
+            throw new IllegalArgumentException("Invalid dungeon depth " + levels + " with " + stepsPerLevel + " steps per level");
         }
+        this.levelCount = levels;
+        this.stepsPerLevel = stepsPerLevel;
+        prefetchNextLevel();
+    }
 
-        // Place gold (5)
-        for (int i = 0; i < 5 && index < availablePositions.size(); i++) {
-            pos = availablePositions.get(index++);
-            map[pos[0]][pos[1]].setItem(new Gold());
+    // Makes mutants within the given distance (in rows and columns) of the
+    // player step towards them after each move. 0, the default, keeps the
+    // classic rules where mutants never move.
+    public void setMutantMovement(int radius) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("Invalid mutant radius " + radius);
         }
+        this.mutantRadius = radius;
+        this.mutants = radius > 0 ? new Mutants(map, radius) : null;
+    }
+
+    public int getMutantRadius() { return mutantRadius; }
 
-        // Place melee mutants (3)
-        for (int i = 0; i < 3 && index < availablePositions.size(); i++) {
-            pos = availablePositions.get(index++);
-            map[pos[0]][pos[1]].setItem(new MeleeMutant());
+    // Limits what the player can see to tiles within the given radius that
+    // are in their line of sight, remembering explored tiles for the rest of
+    // the level. Tiles coming into or out of sight are reported to the tile
+    // listener. 0, the default, turns fog of war off.
+    public void setFogOfWar(int radius) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("Invalid sight radius " + radius);
+        }
+        if (radius == 0) {
+            fog = null;
+            return;
         }
+        fog = new FogOfWar(size, radius);
+        fog.update(map, player.getX(), player.getY(), null);
+    }
+
+    // Visible and explored tiles, or null without fog of war
+    public FogOfWar getFogOfWar() { return fog; }
+
+    // Builds levels ahead of time on the pool's threads, so reaching the
+    // ladder only swaps in a ready board. Pass null to build levels inline.
+    public void setLevelPool(LevelPool levelPool) {
+        this.levelPool = levelPool;
+        prefetchNextLevel();
+    }
 
-        // Place ranged mutants (difficulty based)
-        int rangedMutants = Math.min(actualDifficulty, availablePositions.size() - index);
-        for (int i = 0; i < rangedMutants && index < availablePositions.size(); i++) {
-            pos = availablePositions.get(index++);
-            map[pos[0]][pos[1]].setItem(new RangedMutant());
+    void prefetchNextLevel() {
+        if (nextLevel != null) {
+            nextLevel.cancel(false);
+            nextLevel = null;
+        }
+        if (levelPool != null && currentLevel < levelCount) {
+            // Same settings advanceLevel will use, assuming the player takes the known ladder
+            nextLevelNumber = currentLevel + 1;
+            nextDifficulty = difficulty + 2;
+            nextMaxSteps = maxSteps + stepsPerLevel;
+            nextSeed = seed;
+            nextEntryX = ladderX;
+            nextEntryY = ladderY;
+            nextLevel = levelPool.prefetch(size, nextLevelNumber, nextDifficulty, nextMaxSteps, seed,
+                    ownGenerator(), nextEntryX, nextEntryY);
         }
+    }
 
-        // Place health potions (2)
-        for (int i = 0; i < 2 && index < availablePositions.size(); i++) {
-            pos = availablePositions.get(index++);
-            map[pos[0]][pos[1]].setItem(new HealthPotion());
+    // Prefetches again only if the pending level doesn't match the game any
+    // more, e.g. after a save was loaded into this engine
+    void refreshPrefetch() {
+        boolean wanted = levelPool != null && currentLevel < levelCount;
+        if (wanted ? !isPrefetched(currentLevel + 1, difficulty + 2, maxSteps + stepsPerLevel, ladderX, ladderY)
+                : nextLevel != null) {
+            prefetchNextLevel();
         }
     }
 
+    private boolean isPrefetched(int level, int difficulty, int maxSteps, int entryX, int entryY) {
+        return nextLevel != null && nextLevelNumber == level && nextDifficulty == difficulty
+                && nextMaxSteps == maxSteps && nextSeed == seed && nextEntryX == entryX && nextEntryY == entryY;
+    }
+
     public boolean movePlayer(Direction direction) {
+        if (metrics == null) {
+            return move(direction);
+        }
+        long start = System.nanoTime();
+        boolean moved = move(direction);
+        metrics.recordMove(moved, System.nanoTime() - start, log().size());
+        return moved;
+    }
+
+    // Plays a sequence of moves in one call, stopping as soon as the game is
+    // over. Events are still emitted for every move.
+    public MoveBatchResult movePlayer(Direction[] moves) {
+        return movePlayer(moves, 0, moves.length);
+    }
+
+    public MoveBatchResult movePlayer(Direction[] moves, int from, int count) {
+        long start = metrics != null ? System.nanoTime() : 0;
+        int score = player.getScore(), hp = player.getHp();
+        int played = 0, moved = 0;
+        while (played < count && gameState == GameState.PLAYING) {
+            if (move(moves[from + played++])) {
+                moved++;
+            }
+        }
+        return finishBatch(start, played, moved, score, hp);
+    }
+
+    // Same as movePlayer(Direction[]) for moves packed 2 bits each, 32 per
+    // long, lowest bits first (the Replay layout)
+    public MoveBatchResult movePlayerPacked(long[] packed, int count) {
+        long start = metrics != null ? System.nanoTime() : 0;
+        int score = player.getScore(), hp = player.getHp();
+        int played = 0, moved = 0;
+        while (played < count && gameState == GameState.PLAYING) {
+            int ordinal = (int) (packed[played >> 5] >>> ((played & 31) << 1)) & 3;
+            played++;
+            if (move(DIRECTIONS[ordinal])) {
+                moved++;
+            }
+        }
+        return finishBatch(start, played, moved, score, hp);
+    }
+
+    private MoveBatchResult finishBatch(long start, int played, int moved, int score, int hp) {
+        if (metrics != null) {
+            metrics.recordBatch(played, moved, System.nanoTime() - start, log().size());
+        }
+        return new MoveBatchResult(played, moved, player.getScore() - score, player.getHp() - hp, gameState);
+    }
+
+    private boolean move(Direction direction) {
         if (gameState != GameState.PLAYING) {
             return false;
         }
@@ -327,16 +678,14 @@ public class GameEngine {
         int newY = player.getY() + direction.getDy();
 
         // Check bounds
-        if (newX < 0 || newX >= 10 || newY < 0 || newY >= 10) {
-            addMessage("You tried to move " + direction.name().toLowerCase() +
-                    " but hit the boundary.");
+        if (!map.inBounds(newX, newY)) {
+            emit(GameEvent.HIT_BOUNDARY, direction.ordinal(), 0);
             return false;
         }
 
         // Check wall
-        if (map[newX][newY].isWall()) {
-            addMessage("You tried to move " + direction.name().toLowerCase() +
-                    " but hit a wall.");
+        if (map.isWall(newX, newY)) {
+            emit(GameEvent.HIT_WALL, direction.ordinal(), 0);
             return false;
         }
 
@@ -348,18 +697,36 @@ public class GameEngine {
         checkRangedMutantAttacks();
 
         // Interact with item at new position
-        Item item = map[newX][newY].getItem();
-        if (item != null && !(item instanceof Entry)) {
+        int level = currentLevel;
+        byte code = map.getItemCode(newX, newY);
+        if (code != Board.EMPTY && code != Board.ENTRY) {
+            Item item = Board.itemFor(code);
             item.interact(player, this);
+            if (metrics != null) {
+                metrics.recordInteraction(code);
+            }
 
             // Remove item if it should be consumed
-            if (item instanceof Gold || item instanceof HealthPotion ||
-                    item instanceof MeleeMutant || item instanceof RangedMutant) {
-                map[newX][newY].setItem(null);
+            if (item.isConsumable()) {
+                map.setItemCode(newX, newY, Board.EMPTY);
+            }
+        }
+
+        // Nearby mutants close in, unless the player just left the level or
+        // died, and melee mutants that reach the player hit them
+        if (mutants != null && currentLevel == level && player.getHp() > 0) {
+            for (int hits = ownMutants().tick(newX, newY); hits > 0; hits--) {
+                player.takeDamage(2);
+                emit(GameEvent.MELEE_MUTANT_HIT, 2, 0);
             }
         }
 
-        addMessage("You moved " + direction.name().toLowerCase() + " one step.");
+        // Recast sight from the new tile; a new level has already done so
+        if (fog != null && currentLevel == level) {
+            fog.update(map, newX, newY, tileListener);
+        }
+
+        emit(GameEvent.MOVED, direction.ordinal(), 0);
 
         // Check game end conditions
         checkGameEnd();
@@ -367,28 +734,23 @@ public class GameEngine {
         return true;
     }
 
-    private void checkRangedMutantAttacks() {
+    void checkRangedMutantAttacks() {
         int px = player.getX();
         int py = player.getY();
 
-        // Check for ranged mutants within 2 tiles horizontally or vertically
-        for (int i = 0; i < 10; i++) {
-            for (int j = 0; j < 10; j++) {
-                Item item = map[i][j].getItem();
-                if (item instanceof RangedMutant) {
-                    int distance = Math.abs(i - px) + Math.abs(j - py);
-                    boolean inRange = (Math.abs(i - px) <= 2 && j == py) ||
-                            (Math.abs(j - py) <= 2 && i == px);
-
-                    if (inRange && distance <= 2 && distance > 0) {
-                        // 50% chance to attack
-                        if (random.nextBoolean()) {
-                            player.takeDamage(2);
-                            addMessage("A ranged mutant attacked and you lost 2 HP!");
-                        } else {
-                            addMessage("A ranged mutant attacked, but missed!");
-                        }
-                    }
+        // Ranged mutants only reach 2 tiles along the player's row or column,
+        // so look at just those tiles (in row-major order) instead of the whole map
+        for (int k = 0; k < RANGED_OFFSETS.length; k += 2) {
+            int i = px + RANGED_OFFSETS[k];
+            int j = py + RANGED_OFFSETS[k + 1];
+
+            if (map.inBounds(i, j) && map.getItemCode(i, j) == Board.RANGED_MUTANT) {
+                // 50% chance to attack
+                if (random().nextBoolean()) {
+                    player.takeDamage(2);
+                    emit(GameEvent.RANGED_MUTANT_HIT, 2, 0);
+                } else {
+                    emit(GameEvent.RANGED_MUTANT_MISSED, 0, 0);
                 }
             }
         }
@@ -398,49 +760,167 @@ public class GameEngine {
         // Check if player died
         if (player.getHp() <= 0) {
             gameState = GameState.LOST;
-            addMessage("You died! Game Over.");
+            emit(GameEvent.DIED, 0, 0);
             return;
         }
 
         // Check if max steps reached
         if (steps >= maxSteps) {
             gameState = GameState.LOST;
-            addMessage("You ran out of steps! Game Over.");
+            emit(GameEvent.OUT_OF_STEPS, 0, 0);
             return;
         }
     }
 
     public void advanceLevel() {
-        if (currentLevel == 1) {
-            currentLevel = 2;
+        if (currentLevel < levelCount) {
+            // The next level starts on the ladder the player took
+            if (map.getItemCode(player.getX(), player.getY()) == Board.LADDER) {
+                entryX = player.getX();
+                entryY = player.getY();
+            } else {
+                entryX = ladderX;
+                entryY = ladderY;
+            }
+            currentLevel++;
             difficulty += 2;
-            addMessage("Advancing to Level 2!");
-            initializeLevel();
+            maxSteps += stepsPerLevel;
+            emit(GameEvent.LEVEL_ADVANCED, currentLevel, 0);
+            initializeLevel(null);
         } else {
             // Won the game
             gameState = GameState.WON;
-            addMessage("Congratulations! You escaped the dungeon!");
+            emit(GameEvent.WON, 0, 0);
         }
     }
 
     public void addMessage(String message) {
-        messages.add(message);
+        log().add(message);
+    }
+
+    // Records an event in the message log and passes it on to all listeners
+    void emit(GameEvent event, int a, int b) {
+        log().onEvent(event, a, b);
+        if (metrics != null) {
+            metrics.recordEvent(event, getStartingDifficulty());
+        }
+        for (GameListener listener : listeners) {
+            listener.onEvent(event, a, b);
+        }
+    }
+
+    // Starts recording into the given metrics, which may be shared with other
+    // engines, including how long the current level took to build. Pass null
+    // to stop.
+    public void setMetrics(EngineMetrics metrics) {
+        this.metrics = metrics;
+        if (metrics != null && unrecordedLevelNanos >= 0) {
+            metrics.recordLevel(unrecordedLevelNanos);
+            unrecordedLevelNanos = -1;
+        }
+    }
+
+    public EngineMetrics getMetrics() { return metrics; }
+
+    public void addListener(GameListener listener) {
+        GameListener[] grown = Arrays.copyOf(listeners, listeners.length + 1);
+        grown[listeners.length] = listener;
+        listeners = grown;
+    }
+
+    // Listener for tile changes on the current and all later levels. A new
+    // level replaces the whole board and is announced with LEVEL_STARTED.
+    public void setTileListener(TileListener tileListener) {
+        this.tileListener = tileListener;
+        map.setTileListener(tileListener);
+    }
+
+    public void removeListener(GameListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                GameListener[] shrunk = new GameListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, shrunk, 0, i);
+                System.arraycopy(listeners, i + 1, shrunk, i, shrunk.length - i);
+                listeners = shrunk;
+                return;
+            }
+        }
     }
 
     // Getters
-    public Cell[][] getMap() { return map; }
+    public Board getBoard() { return map; }
     public Player getPlayer() { return player; }
+    public int getPlayerX() { return player.getX(); }
+    public int getPlayerY() { return player.getY(); }
+    public int getPlayerHp() { return player.getHp(); }
+    public int getPlayerScore() { return player.getScore(); }
     public int getCurrentLevel() { return currentLevel; }
+    public int getLevelCount() { return levelCount; }
+    public int getStepsPerLevel() { return stepsPerLevel; }
     public int getDifficulty() { return difficulty; }
+    // Difficulty the game was started with, before the per-level increases
+    public int getStartingDifficulty() { return difficulty - 2 * (currentLevel - 1); }
     public int getSteps() { return steps; }
     public int getMaxSteps() { return maxSteps; }
     public GameState getGameState() { return gameState; }
-    public List<String> getMessages() { return new ArrayList<>(messages); }
-    public int getSize() { return 10; }
+    public List<String> getMessages() { return log().toList(); }
+    public MessageLog getMessageLog() { return log(); }
+
+    // Keeps only the last capacity messages (MessageLog.DEFAULT_CAPACITY by
+    // default). Messages already logged keep their sequence numbers, so
+    // cursors stay valid.
+    public void setMessageRetention(int capacity) {
+        messages = new MessageLog(log(), capacity);
+    }
+
+    // Forks only make their one-message log once something is logged
+    private MessageLog log() {
+        if (messages == null) {
+            messages = new MessageLog(1);
+        }
+        return messages;
+    }
+
+    private GameRandom random() {
+        if (random == null) {
+            random = new GameRandom(0);
+            random.setState(forkedRandomState);
+        }
+        return random;
+    }
+
+    long getRandomState() {
+        return random != null ? random.getState() : forkedRandomState;
+    }
+
+    void setRandomState(long state) {
+        random().setState(state);
+    }
+
+    // The generator, first copied if it is still shared with the parent game
+    LevelGenerator ownGenerator() {
+        if (sharedGenerator) {
+            generator = new LevelGenerator(generator);
+            sharedGenerator = false;
+        }
+        return generator;
+    }
+
+    // The mutants, first copied if a fork shares them
+    Mutants ownMutants() {
+        if (mutants.isShared()) {
+            mutants = mutants.copyFor(map);
+        }
+        return mutants;
+    }
+    public int getSize() { return size; }
+    public long getSeed() { return seed; }
 
     // For testing purposes
     public static void main(String[] args) {
         GameEngine engine = new GameEngine(3);
+        // -Ddungeon.fog=N shows the map, but only what the player can see within N tiles
+        engine.setFogOfWar(Integer.getInteger("dungeon.fog", 0));
         Scanner scanner = new Scanner(System.in);
 
         System.out.println("MiniDungeon Text Interface");
@@ -448,14 +928,12 @@ public class GameEngine {
 
         // Display initial state
         displayGameState(engine);
+        long messageCursor = engine.getMessageLog().getSequence();
 
         while (engine.getGameState() == GameState.PLAYING) {
             System.out.print("Enter command: ");
             String input = scanner.nextLine().toLowerCase().trim();
 
-            // Clear previous messages for this turn
-            List<String> messagesBefore = new ArrayList<>(engine.getMessages());
-
             switch (input) {
                 case "u":
                     engine.movePlayer(Direction.UP);
@@ -479,10 +957,8 @@ public class GameEngine {
             }
 
             // Display new messages
-            List<String> messagesAfter = engine.getMessages();
-            for (int i = messagesBefore.size(); i < messagesAfter.size(); i++) {
-                System.out.println(">>> " + messagesAfter.get(i));
-            }
+            messageCursor = engine.getMessageLog().forEachSince(messageCursor,
+                    message -> System.out.println(">>> " + message));
 
             // Display updated game state
             displayGameState(engine);
@@ -495,6 +971,23 @@ public class GameEngine {
             System.out.println("\n💀 GAME OVER! Final score: " + engine.getPlayer().getScore());
         }
 
+        // Scores are kept in leaderboard.log, or the file given with -Ddungeon.leaderboard=<file>
+        Path leaderboardFile = Path.of(System.getProperty("dungeon.leaderboard", "leaderboard.log"));
+        try (Leaderboard leaderboard = new Leaderboard(leaderboardFile)) {
+            System.out.print("Enter your name for the leaderboard: ");
+            String name = scanner.hasNextLine() ? scanner.nextLine() : "";
+            Leaderboard.Entry entry = leaderboard.submit(name, engine);
+            int difficulty = entry.getDifficulty();
+            System.out.println("Rank #" + leaderboard.getRank(difficulty, entry.getScore()) + " of "
+                    + leaderboard.getCount(difficulty) + " at difficulty " + difficulty);
+            int rank = 1;
+            for (Leaderboard.Entry top : leaderboard.getTop(difficulty, 5)) {
+                System.out.println("  " + rank++ + ". " + top);
+            }
+        } catch (IOException e) {
+            System.out.println("Could not save the score: " + e.getMessage());
+        }
+
         scanner.close();
     }
 
@@ -506,5 +999,33 @@ public class GameEngine {
                 " | Steps: " + engine.getSteps() + "/" + engine.getMaxSteps());
         System.out.println("Player position: (" + engine.getPlayer().getX() + "," + engine.getPlayer().getY() + ")");
         System.out.println("=".repeat(40));
+        if (engine.getFogOfWar() != null) {
+            displayFoggedMap(engine);
+        }
+    }
+
+    // Visible tiles as they are, explored tiles as bare walls and floor, and
+    // nothing for tiles never seen
+    private static void displayFoggedMap(GameEngine engine) {
+        FogOfWar fog = engine.getFogOfWar();
+        Board board = engine.getBoard();
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < engine.getSize(); i++) {
+            line.setLength(0);
+            for (int j = 0; j < engine.getSize(); j++) {
+                if (i == engine.getPlayerX() && j == engine.getPlayerY()) {
+                    line.append('P');
+                } else if (!fog.isExplored(i, j)) {
+                    line.append(' ');
+                } else if (board.isWall(i, j)) {
+                    line.append('#');
+                } else if (fog.isVisible(i, j) && board.getItemCode(i, j) != Board.EMPTY) {
+                    line.append(board.getSymbol(i, j));
+                } else {
+                    line.append('.');
+                }
+            }
+            System.out.println(line);
+        }
     }
 }
@@ -0,0 +1,136 @@
+package dungeon.engine;
+
+// Everything the engine reports while a game is played. Events carry up to two
+// int arguments (documented on each constant) and are only turned into text
+// by describe(), so emitting an event allocates nothing.
+public enum GameEvent {
+    // a = level, b = difficulty
+    LEVEL_STARTED(Category.LEVEL) {
+        @Override
+        public String describe(int a, int b) {
+            return "Level " + a + " started! Difficulty: " + b;
+        }
+    },
+    // a = level being entered
+    LEVEL_ADVANCED(Category.LEVEL) {
+        @Override
+        public String describe(int a, int b) {
+            return "Advancing to Level " + a + "!";
+        }
+    },
+    // a = direction ordinal
+    MOVED(Category.MOVE) {
+        @Override
+        public String describe(int a, int b) {
+            return "You moved " + directionName(a) + " one step.";
+        }
+    },
+    // a = direction ordinal
+    HIT_BOUNDARY(Category.MOVE) {
+        @Override
+        public String describe(int a, int b) {
+            return "You tried to move " + directionName(a) + " but hit the boundary.";
+        }
+    },
+    // a = direction ordinal
+    HIT_WALL(Category.MOVE) {
+        @Override
+        public String describe(int a, int b) {
+            return "You tried to move " + directionName(a) + " but hit a wall.";
+        }
+    },
+    // a = score gained
+    GOLD_PICKED_UP(Category.PICKUP) {
+        @Override
+        public String describe(int a, int b) {
+            return "You picked up gold! (+" + a + " score)";
+        }
+    },
+    // a = hp healed
+    POTION_DRUNK(Category.PICKUP) {
+        @Override
+        public String describe(int a, int b) {
+            return "You drank a health potion! (+" + a + " HP)";
+        }
+    },
+    // a = damage taken
+    TRAP_TRIGGERED(Category.DAMAGE) {
+        @Override
+        public String describe(int a, int b) {
+            return "You fell into a trap! (-" + a + " HP)";
+        }
+    },
+    // a = damage taken, b = score gained
+    MELEE_MUTANT_FOUGHT(Category.DAMAGE) {
+        @Override
+        public String describe(int a, int b) {
+            return "You fought a melee mutant! (-" + a + " HP, +" + b + " score)";
+        }
+    },
+    // a = damage taken
+    MELEE_MUTANT_HIT(Category.DAMAGE) {
+        @Override
+        public String describe(int a, int b) {
+            return "A melee mutant attacked and you lost " + a + " HP!";
+        }
+    },
+    // a = score gained
+    RANGED_MUTANT_DEFEATED(Category.PICKUP) {
+        @Override
+        public String describe(int a, int b) {
+            return "You defeated a ranged mutant! (+" + a + " score)";
+        }
+    },
+    // a = damage taken
+    RANGED_MUTANT_HIT(Category.DAMAGE) {
+        @Override
+        public String describe(int a, int b) {
+            return "A ranged mutant attacked and you lost " + a + " HP!";
+        }
+    },
+    RANGED_MUTANT_MISSED(Category.DAMAGE) {
+        @Override
+        public String describe(int a, int b) {
+            return "A ranged mutant attacked, but missed!";
+        }
+    },
+    WON(Category.GAME_OVER) {
+        @Override
+        public String describe(int a, int b) {
+            return "Congratulations! You escaped the dungeon!";
+        }
+    },
+    DIED(Category.GAME_OVER) {
+        @Override
+        public String describe(int a, int b) {
+            return "You died! Game Over.";
+        }
+    },
+    OUT_OF_STEPS(Category.GAME_OVER) {
+        @Override
+        public String describe(int a, int b) {
+            return "You ran out of steps! Game Over.";
+        }
+    };
+
+    public enum Category {
+        MOVE, DAMAGE, PICKUP, LEVEL, GAME_OVER
+    }
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Category category;
+
+    GameEvent(Category category) {
+        this.category = category;
+    }
+
+    public Category getCategory() { return category; }
+
+    // Human-readable text for this event with the given arguments
+    public abstract String describe(int a, int b);
+
+    private static String directionName(int ordinal) {
+        return DIRECTIONS[ordinal].name().toLowerCase();
+    }
+}
@@ -0,0 +1,8 @@
+package dungeon.engine;
+
+// Receives the events emitted by a GameEngine. See GameEvent for the meaning
+// of the two arguments of each event.
+@FunctionalInterface
+public interface GameListener {
+    void onEvent(GameEvent event, int a, int b);
+}
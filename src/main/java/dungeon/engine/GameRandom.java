@@ -0,0 +1,35 @@
+package dungeon.engine;
+import java.util.Random;
+
+// java.util.Random with its state exposed so it can be saved and restored.
+// Uses the same generator as Random, so a seed gives exactly the same
+// sequence as new Random(seed).
+class GameRandom extends Random {
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    GameRandom(long seed) {
+        super(seed); // calls setSeed
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    long getState() { return state; }
+
+    void setState(long state) {
+        this.state = state & MASK;
+    }
+}
@@ -0,0 +1,344 @@
+package dungeon.engine;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+// Compact binary save format for a whole game: a fixed header followed by
+// the raw tile bytes of the current level, so a 10x10 game takes a couple of
+// hundred bytes. Messages, listeners, metrics and the level pool are not
+// saved. The entry, ladder and moving mutants are saved rather than found
+// again, so loading into an existing engine (readInto) does no work in
+// proportion to the map beyond copying the tiles.
+//
+// Layout (big-endian):
+//   int magic, byte version, int size, int level, int difficulty,
+//   int steps, int maxSteps, byte state, byte hp, int score,
+//   int x, int y, long seed, long rngState, int levelCount,
+//   int stepsPerLevel, int entryX, int entryY, int ladderX, int ladderY,
+//   int[6] generator counts (LADDER to RANGED_MUTANT), byte validate,
+//   int maxAttempts, int mutantRadius, int fogRadius, byte[size * size] tiles,
+//   mutants (only if mutantRadius > 0): int count, int[count] tile indexes,
+//   long[(size * size + 63) / 64] explored tiles (only if fogRadius > 0)
+public final class GameSnapshot {
+    private static final int MAGIC = 0x4D44534E; // "MDSN"
+    private static final byte VERSION = 1;
+    private static final int GENERATOR_COUNTS = Board.PLAYER - Board.LADDER;
+    private static final GameState[] STATES = GameState.values();
+    private static final int HEADER_BYTES = 4 + 1 + 4 + 4 + 4 + 4 + 4 + 1 + 1 + 4 + 4 + 4 + 8 + 8 + 4 + 4
+            + 4 * 4 + GENERATOR_COUNTS * 4 + 1 + 4 + 4 + 4;
+
+    private GameSnapshot() {
+    }
+
+    // Number of bytes a snapshot of the engine takes
+    public static int sizeOf(GameEngine engine) {
+        int mutants = engine.mutants != null ? engine.mutants.byteSize() : 0;
+        int explored = engine.fog != null ? engine.fog.getExplored().length * 8 : 0;
+        return HEADER_BYTES + engine.size * engine.size + mutants + explored;
+    }
+
+    public static void write(GameEngine engine, ByteBuffer buffer) {
+        Player player = engine.player;
+        buffer.putInt(MAGIC)
+                .put(VERSION)
+                .putInt(engine.size)
+                .putInt(engine.currentLevel)
+                .putInt(engine.difficulty)
+                .putInt(engine.steps)
+                .putInt(engine.maxSteps)
+                .put((byte) engine.gameState.ordinal())
+                .put((byte) player.getHp())
+                .putInt(player.getScore())
+                .putInt(player.getX())
+                .putInt(player.getY())
+                .putLong(engine.seed)
+                .putLong(engine.getRandomState())
+                .putInt(engine.levelCount)
+                .putInt(engine.stepsPerLevel)
+                .putInt(engine.entryX)
+                .putInt(engine.entryY)
+                .putInt(engine.ladderX)
+                .putInt(engine.ladderY);
+        LevelGenerator generator = engine.generator;
+        for (byte code = Board.LADDER; code < Board.PLAYER; code++) {
+            buffer.putInt(generator.getCount(code));
+        }
+        buffer.put((byte) (generator.isValidate() ? 1 : 0))
+                .putInt(generator.getMaxAttempts())
+                .putInt(engine.mutants != null ? engine.mutantRadius : 0)
+                .putInt(engine.fog != null ? engine.fog.getRadius() : 0);
+        engine.map.writeTiles(buffer);
+        if (engine.mutants != null) {
+            engine.mutants.write(buffer);
+        }
+        if (engine.fog != null) {
+            engine.fog.writeExplored(buffer);
+        }
+    }
+
+    public static GameEngine read(ByteBuffer buffer) throws IOException {
+        try {
+            readHeader(buffer);
+            int size = buffer.getInt();
+            if (size < 1 || size > Board.MAX_SIZE || (long) size * size > buffer.remaining()) {
+                throw new IOException("Invalid map size " + size);
+            }
+            GameEngine engine = new GameEngine(size, new MessageLog());
+            engine.map = new Board(size);
+            engine.map.setMutantListener(engine.mutantTracker);
+            engine.player = new Player(0, 0);
+            readBody(buffer, engine);
+            return engine;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Save is truncated", e);
+        }
+    }
+
+    // Loads a snapshot into an existing engine of the same size, reusing its
+    // board and player instead of allocating new ones. The whole snapshot is
+    // checked before anything is changed, so on an IOException the engine is
+    // left as it was.
+    static void readInto(ByteBuffer buffer, GameEngine engine) throws IOException {
+        try {
+            readHeader(buffer);
+            int size = buffer.getInt();
+            if (size != engine.size) {
+                throw new IOException("Save is " + size + "x" + size + " but engine is " + engine.size + "x" + engine.size);
+            }
+            readBody(buffer, engine);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Save is truncated", e);
+        }
+    }
+
+    // Checks the magic number and version
+    private static void readHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a MiniDungeon save");
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported save version " + version);
+        }
+    }
+
+    private static void readBody(ByteBuffer buffer, GameEngine engine) throws IOException {
+        // Parse and check everything first
+        int size = engine.size;
+        int level = buffer.getInt();
+        int difficulty = buffer.getInt();
+        int steps = buffer.getInt();
+        int maxSteps = buffer.getInt();
+        int state = buffer.get();
+        int hp = buffer.get();
+        int score = buffer.getInt();
+        int x = buffer.getInt();
+        int y = buffer.getInt();
+        long seed = buffer.getLong();
+        long randomState = buffer.getLong();
+        int levelCount = buffer.getInt();
+        int stepsPerLevel = buffer.getInt();
+        int entryX = buffer.getInt();
+        int entryY = buffer.getInt();
+        int ladderX = buffer.getInt();
+        int ladderY = buffer.getInt();
+        int counts = buffer.position();
+        for (byte code = Board.LADDER; code < Board.PLAYER; code++) {
+            int count = buffer.getInt();
+            if (count < 0 && !(count == LevelGenerator.BY_DIFFICULTY && code == Board.RANGED_MUTANT)) {
+                throw new IOException("Invalid count " + count + " for item " + code);
+            }
+        }
+        boolean validate = buffer.get() != 0;
+        int maxAttempts = buffer.getInt();
+        int mutantRadius = buffer.getInt();
+        int fogRadius = buffer.getInt();
+
+        long startingDifficulty = difficulty - 2L * (level - 1);
+        if (level < 1 || levelCount < 1 || level > levelCount || startingDifficulty < 0 || startingDifficulty > 10
+                || steps < 0 || maxSteps < 0 || stepsPerLevel < 0 || maxAttempts < 1
+                || mutantRadius < 0 || fogRadius < 0) {
+            throw new IOException("Invalid game settings");
+        }
+        if (state < 0 || state >= STATES.length || hp < 0 || hp > engine.player.getMaxHp() || score < 0) {
+            throw new IOException("Invalid player state");
+        }
+        if (!inside(size, x, y) || !inside(size, entryX, entryY) || !inside(size, ladderX, ladderY)) {
+            throw new IOException("Position outside the map");
+        }
+
+        // Then the tiles, mutants and explored tiles that follow
+        int tiles = buffer.position();
+        int area = size * size;
+        long needed = area + (fogRadius > 0 ? ((area + 63L) >> 6) * 8 : 0) + (mutantRadius > 0 ? 4 : 0);
+        if (buffer.remaining() < needed) {
+            throw new IOException("Save is truncated");
+        }
+        for (int i = tiles; i < tiles + area; i++) {
+            byte tile = buffer.get(i);
+            if ((tile & ~(Board.WALL | Board.ITEM_MASK)) != 0 || (tile & Board.ITEM_MASK) >= Board.PLAYER) {
+                throw new IOException("Invalid tile " + tile);
+            }
+        }
+        if (mutantRadius > 0) {
+            int mutants = buffer.getInt(tiles + area);
+            if (mutants < 0 || mutants > area || buffer.remaining() < needed + 4L * mutants) {
+                throw new IOException("Invalid mutant count " + mutants);
+            }
+            for (int i = 0; i < mutants; i++) {
+                int tile = buffer.getInt(tiles + area + 4 + 4 * i);
+                if (tile < 0 || tile >= area) {
+                    throw new IOException("Mutant outside the map");
+                }
+            }
+        }
+
+        // Now apply it
+        engine.currentLevel = level;
+        engine.difficulty = difficulty;
+        engine.steps = steps;
+        engine.maxSteps = maxSteps;
+        engine.gameState = STATES[state];
+        engine.player.setPosition(x, y);
+        engine.player.restore(hp, score);
+        engine.seed = seed;
+        engine.setRandomState(randomState);
+        engine.levelCount = levelCount;
+        engine.stepsPerLevel = stepsPerLevel;
+        engine.entryX = entryX;
+        engine.entryY = entryY;
+        engine.ladderX = ladderX;
+        engine.ladderY = ladderY;
+        LevelGenerator generator = engine.ownGenerator();
+        for (byte code = Board.LADDER; code < Board.PLAYER; code++) {
+            generator.setCount(code, buffer.getInt(counts + 4 * (code - Board.LADDER)));
+        }
+        generator.setValidate(validate);
+        generator.setMaxAttempts(maxAttempts);
+        engine.map.readTiles(buffer);
+
+        // Reuse the engine's mutants and fog of war if the settings match
+        engine.mutantRadius = mutantRadius;
+        if (mutantRadius == 0) {
+            engine.mutants = null;
+        } else {
+            if (engine.mutants == null || engine.mutants.getRadius() != mutantRadius || engine.mutants.isShared()) {
+                engine.mutants = new Mutants(engine.map, mutantRadius);
+            }
+            engine.mutants.read(buffer);
+        }
+        if (fogRadius == 0) {
+            engine.fog = null;
+        } else {
+            if (engine.fog == null || engine.fog.getRadius() != fogRadius) {
+                engine.fog = new FogOfWar(engine.size, fogRadius);
+            }
+            engine.fog.readExplored(buffer);
+            engine.fog.update(engine.map, engine.player.getX(), engine.player.getY(), null);
+        }
+        engine.refreshPrefetch();
+    }
+
+    private static boolean inside(int size, int x, int y) {
+        return x >= 0 && x < size && y >= 0 && y < size;
+    }
+
+    public static byte[] toBytes(GameEngine engine) {
+        ByteBuffer buffer = ByteBuffer.allocate(sizeOf(engine));
+        write(engine, buffer);
+        return buffer.array();
+    }
+
+    public static GameEngine fromBytes(byte[] bytes) throws IOException {
+        return read(ByteBuffer.wrap(bytes));
+    }
+
+    public static void save(GameEngine engine, Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(sizeOf(engine));
+        write(engine, buffer);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    public static GameEngine load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading
+            }
+            buffer.flip();
+            return read(buffer);
+        }
+    }
+
+    // Writes many snapshots back to back into one archive file, each
+    // prefixed with its length
+    public static void saveArchive(List<GameEngine> engines, Path path) throws IOException {
+        long total = 0;
+        for (GameEngine engine : engines) {
+            total += 4 + sizeOf(engine);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, total);
+            for (GameEngine engine : engines) {
+                buffer.putInt(sizeOf(engine));
+                write(engine, buffer);
+            }
+            buffer.force();
+        }
+    }
+
+    // Memory-maps an archive written by saveArchive for random access
+    public static Archive openArchive(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Archive(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Read-only view of a memory-mapped archive
+    public static final class Archive {
+        private final MappedByteBuffer buffer;
+        private int[] offsets = new int[16];
+        private int count;
+
+        private Archive(MappedByteBuffer buffer) throws IOException {
+            this.buffer = buffer;
+            int position = 0;
+            while (position < buffer.limit()) {
+                if (buffer.limit() - position < 4) {
+                    throw new IOException("Archive is truncated at byte " + position);
+                }
+                int length = buffer.getInt(position);
+                if (length < HEADER_BYTES || length > buffer.limit() - position - 4) {
+                    throw new IOException("Invalid snapshot length " + length + " at byte " + position);
+                }
+                if (count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                }
+                offsets[count++] = position + 4;
+                position += 4 + length;
+            }
+        }
+
+        public int size() { return count; }
+
+        public GameEngine load(int index) throws IOException {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Snapshot " + index + " of " + count);
+            }
+            return read(buffer.slice(offsets[index], buffer.getInt(offsets[index] - 4)));
+        }
+    }
+}
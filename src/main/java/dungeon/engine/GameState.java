@@ -0,0 +1,12 @@
+/*
+ * GameState.java
+ * Author: Max Faulks
+ * 30 / 05 / 25
+ * Portions of this script were generated or assisted by OpenAI's ChatGPT.
+*/
+package dungeon.engine;
+
+// Game state enum
+public enum GameState {
+    PLAYING, WON, LOST
+}
@@ -0,0 +1,44 @@
+package dungeon.engine;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free latency histogram with power-of-two nanosecond buckets. Bucket i
+// counts latencies in [2^i, 2^(i+1)) ns, so percentiles are accurate to
+// within a factor of two, which is plenty for spotting outliers.
+public class LatencyHistogram {
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder total = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        counts[63 - Long.numberOfLeadingZeros(Math.max(1, nanos))].increment();
+        total.increment();
+    }
+
+    public long getCount() {
+        return total.sum();
+    }
+
+    // Upper bound in nanoseconds of the bucket holding the given percentile (0-100)
+    public long getPercentile(double percentile) {
+        long count = total.sum();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i].sum();
+            if (seen >= rank) {
+                return i == 63 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,262 @@
+package dungeon.engine;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// High scores per starting difficulty, kept in an append-only text file with
+// one result per line:
+//   <epoch millis> <difficulty> <score> <name>
+// Opening the file streams it once to rebuild the in-memory index; lines
+// that can't be parsed (e.g. one cut short by a crash) are skipped.
+//
+// Each difficulty is indexed by an immutable treap ordered by score (best
+// first, earlier results first on ties) where every node knows the size of
+// its subtree. Submitting copies only the O(log n) nodes on the path to the
+// new result and publishes the new root, so readers never lock: they see
+// either the old or the new tree. Rank and count queries are O(log n) and
+// the top k take O(log n + k). Submissions are serialised with the append.
+public class Leaderboard implements AutoCloseable {
+    public static final int DIFFICULTIES = 11;
+
+    private final Path path;
+    private final BufferedWriter writer;
+    private final AtomicReferenceArray<Node> roots = new AtomicReferenceArray<>(DIFFICULTIES);
+    private long nextSeq;
+    private int skippedLines;
+
+    // One result on the board
+    public static final class Entry {
+        private final String name;
+        private final int difficulty;
+        private final int score;
+        private final long time;
+        private final long seq; // order of submission, breaks ties
+
+        Entry(String name, int difficulty, int score, long time, long seq) {
+            this.name = name;
+            this.difficulty = difficulty;
+            this.score = score;
+            this.time = time;
+            this.seq = seq;
+        }
+
+        public String getName() { return name; }
+        public int getDifficulty() { return difficulty; }
+        public int getScore() { return score; }
+        public long getTime() { return time; }
+
+        // True if this result ranks above the other
+        boolean isBefore(Entry other) {
+            return score != other.score ? score > other.score : seq < other.seq;
+        }
+
+        @Override
+        public String toString() {
+            return score + " " + name;
+        }
+    }
+
+    private static final class Node {
+        final Entry entry;
+        final int priority;
+        final Node left, right;
+        final int size;
+
+        Node(Entry entry, int priority, Node left, Node right) {
+            this.entry = entry;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + size(left) + size(right);
+        }
+    }
+
+    // Loads the log, creating it if needed, and opens it for appending
+    public Leaderboard(Path path) throws IOException {
+        this.path = path;
+        boolean endsWithNewline = true;
+        if (Files.exists(path)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Entry entry = parse(line);
+                    if (entry == null) {
+                        skippedLines++;
+                    } else {
+                        insert(entry);
+                    }
+                }
+            }
+            endsWithNewline = endsWithNewline(path);
+        }
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (!endsWithNewline) {
+            // Don't glue the next result onto a line cut short by a crash
+            writer.write('\n');
+            writer.flush();
+        }
+    }
+
+    private Entry parse(String line) {
+        String[] parts = line.split(" ", 4);
+        if (parts.length < 4) {
+            return null;
+        }
+        try {
+            long time = Long.parseLong(parts[0]);
+            int difficulty = Integer.parseInt(parts[1]);
+            int score = Integer.parseInt(parts[2]);
+            if (difficulty < 0 || difficulty >= DIFFICULTIES) {
+                return null;
+            }
+            return new Entry(parts[3], difficulty, score, time, nextSeq++);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean endsWithNewline(Path path) throws IOException {
+        try (SeekableByteChannel channel = Files.newByteChannel(path)) {
+            if (channel.size() == 0) {
+                return true;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.position(channel.size() - 1).read(last);
+            return last.get(0) == '\n';
+        }
+    }
+
+    // Records the result of a finished game under its starting difficulty
+    public Entry submit(String name, GameEngine engine) throws IOException {
+        return submit(name, engine.getStartingDifficulty(), engine.getPlayerScore());
+    }
+
+    // Appends a result to the log, then adds it to the index
+    public synchronized Entry submit(String name, int difficulty, int score) throws IOException {
+        checkDifficulty(difficulty);
+        String cleanName = name == null ? "" : name.replaceAll("\\s+", " ").trim();
+        if (cleanName.isEmpty()) {
+            cleanName = "Anonymous";
+        }
+        Entry entry = new Entry(cleanName, difficulty, score, System.currentTimeMillis(), nextSeq++);
+        writer.write(entry.time + " " + difficulty + " " + score + " " + cleanName + "\n");
+        writer.flush();
+        insert(entry);
+        return entry;
+    }
+
+    private void insert(Entry entry) {
+        // Priorities are a hash of the sequence number, so rebuilding from
+        // the log always gives the same tree
+        int priority = (int) ((entry.seq + 1) * 0x9E3779B97F4A7C15L >>> 32);
+        roots.set(entry.difficulty, insert(roots.get(entry.difficulty), new Node(entry, priority, null, null)));
+    }
+
+    // 1 plus the number of results strictly better than the score, i.e. the
+    // rank a game with that score gets (ties share a rank)
+    public int getRank(int difficulty, int score) {
+        checkDifficulty(difficulty);
+        int better = 0;
+        Node node = roots.get(difficulty);
+        while (node != null) {
+            if (node.entry.score > score) {
+                better += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return better + 1;
+    }
+
+    // The best k results, best first
+    public List<Entry> getTop(int difficulty, int k) {
+        checkDifficulty(difficulty);
+        Node node = roots.get(difficulty);
+        List<Entry> top = new ArrayList<>(Math.max(0, Math.min(k, size(node))));
+        // In-order walk with an explicit stack, stopping after k results
+        Node[] stack = new Node[64];
+        int depth = 0;
+        while ((node != null || depth > 0) && top.size() < k) {
+            if (node != null) {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = node;
+                node = node.left;
+            } else {
+                node = stack[--depth];
+                top.add(node.entry);
+                node = node.right;
+            }
+        }
+        return Collections.unmodifiableList(top);
+    }
+
+    public int getCount(int difficulty) {
+        checkDifficulty(difficulty);
+        return size(roots.get(difficulty));
+    }
+
+    // Lines of the log that could not be read when it was opened
+    public int getSkippedLines() { return skippedLines; }
+
+    public Path getPath() { return path; }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private static void checkDifficulty(int difficulty) {
+        if (difficulty < 0 || difficulty >= DIFFICULTIES) {
+            throw new IllegalArgumentException("Invalid difficulty " + difficulty);
+        }
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    // Persistent treap insert: returns a new root, leaving the old tree intact
+    private static Node insert(Node root, Node node) {
+        if (root == null) {
+            return node;
+        }
+        if (node.priority > root.priority) {
+            Node[] halves = new Node[2];
+            split(root, node.entry, halves);
+            return new Node(node.entry, node.priority, halves[0], halves[1]);
+        }
+        if (node.entry.isBefore(root.entry)) {
+            return new Node(root.entry, root.priority, insert(root.left, node), root.right);
+        }
+        return new Node(root.entry, root.priority, root.left, insert(root.right, node));
+    }
+
+    // Splits a tree into the results ranking above the key and the rest
+    private static void split(Node root, Entry key, Node[] halves) {
+        if (root == null) {
+            halves[0] = null;
+            halves[1] = null;
+        } else if (root.entry.isBefore(key)) {
+            split(root.right, key, halves);
+            halves[0] = new Node(root.entry, root.priority, root.left, halves[0]);
+        } else {
+            split(root.left, key, halves);
+            halves[1] = new Node(root.entry, root.priority, halves[1], root.right);
+        }
+    }
+}
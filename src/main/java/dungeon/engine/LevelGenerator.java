@@ -0,0 +1,183 @@
+package dungeon.engine;
+import java.util.Arrays;
+import java.util.Random;
+
+// Places the items of a level on a walled board. Free tiles are kept as
+// indexes in a primitive array and sampled with a partial Fisher-Yates
+// shuffle, so only as many random draws are made as there are items, and
+// the work arrays are reused between levels.
+//
+// With validation on, a level is only accepted if the ladder can be reached
+// from the entry within the step budget without stepping on a trap or a
+// mutant; otherwise the items are cleared and placed again.
+//
+// Not thread-safe: use one generator per engine or thread.
+public class LevelGenerator {
+    // Ranged mutant count meaning "one per difficulty level"
+    public static final int BY_DIFFICULTY = -1;
+    public static final int DEFAULT_MAX_ATTEMPTS = 100;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // Placement order, kept from the original generator
+    private static final byte[] ORDER = {
+            Board.LADDER, Board.TRAP, Board.GOLD, Board.MELEE_MUTANT, Board.RANGED_MUTANT, Board.HEALTH_POTION
+    };
+
+    private final int[] counts = new int[Board.PLAYER];
+    private boolean validate;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+    private static final int[] NONE = new int[0];
+
+    // Work arrays, grown to the largest board seen
+    private int[] positions = NONE;
+    private int[] queue = NONE;
+    private int[] distance = NONE;
+
+    public LevelGenerator() {
+        counts[Board.LADDER] = 1;
+        counts[Board.TRAP] = 5;
+        counts[Board.GOLD] = 5;
+        counts[Board.MELEE_MUTANT] = 3;
+        counts[Board.RANGED_MUTANT] = BY_DIFFICULTY;
+        counts[Board.HEALTH_POTION] = 2;
+    }
+
+    // Copy with the same settings and its own work arrays
+    public LevelGenerator(LevelGenerator other) {
+        copySettings(other);
+    }
+
+    // Takes over another generator's settings, keeping this one's work arrays
+    void copySettings(LevelGenerator other) {
+        System.arraycopy(other.counts, 0, counts, 0, counts.length);
+        this.validate = other.validate;
+        this.maxAttempts = other.maxAttempts;
+    }
+
+    // Sets how many of an item to place per level
+    public LevelGenerator setCount(byte code, int count) {
+        if (code < Board.LADDER || code >= Board.PLAYER || code == Board.ENTRY) {
+            throw new IllegalArgumentException("Not a placeable item: " + code);
+        }
+        if (count < 0 && !(count == BY_DIFFICULTY && code == Board.RANGED_MUTANT)) {
+            throw new IllegalArgumentException("Invalid count " + count + " for item " + code);
+        }
+        counts[code] = count;
+        return this;
+    }
+
+    public int getCount(byte code) { return counts[code]; }
+
+    public LevelGenerator setValidate(boolean validate) {
+        this.validate = validate;
+        return this;
+    }
+
+    public boolean isValidate() { return validate; }
+
+    public LevelGenerator setMaxAttempts(int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    public int getMaxAttempts() { return maxAttempts; }
+
+    // Number of the item placed on a level of the given difficulty, before
+    // running out of free tiles
+    int countFor(byte code, int difficulty) {
+        return counts[code] == BY_DIFFICULTY ? difficulty : counts[code];
+    }
+
+    // Places items on every free inside tile except the entry. Returns false
+    // if validation is on and no attempt produced a valid level, in which
+    // case the last attempt is left on the board.
+    public boolean generate(Board board, int entryX, int entryY, int difficulty, int maxSteps, Random random) {
+        int size = board.getSize();
+        if (positions.length < size * size) {
+            positions = new int[size * size];
+            queue = new int[size * size];
+            distance = new int[size * size];
+        }
+
+        // Free tiles, in row-major order
+        int free = 0;
+        for (int i = 1; i < size - 1; i++) {
+            for (int j = 1; j < size - 1; j++) {
+                if (!(i == entryX && j == entryY) && !board.isWall(i, j)) {
+                    positions[free++] = i * size + j;
+                }
+            }
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            int placed = place(board, free, difficulty, random);
+            if (!validate || isLadderReachable(board, entryX, entryY, maxSteps)) {
+                return true;
+            }
+            if (attempt == maxAttempts) {
+                return false;
+            }
+            // The sampled tiles are the last 'placed' entries of the array
+            for (int k = free - placed; k < free; k++) {
+                board.setItemCode(positions[k] / size, positions[k] % size, Board.EMPTY);
+            }
+        }
+    }
+
+    // Partial Fisher-Yates: each item takes a random tile from the unsampled
+    // front of the array and swaps it to the back. Returns the number placed.
+    private int place(Board board, int free, int difficulty, Random random) {
+        int size = board.getSize();
+        int remaining = free;
+        for (byte code : ORDER) {
+            int count = countFor(code, difficulty);
+            for (int n = 0; n < count && remaining > 0; n++) {
+                int k = random.nextInt(remaining--);
+                int tile = positions[k];
+                positions[k] = positions[remaining];
+                positions[remaining] = tile;
+                board.setItemCode(tile / size, tile % size, code);
+            }
+        }
+        return free - remaining;
+    }
+
+    // Breadth-first flood fill from the entry over safe tiles, stopping at
+    // the first ladder found
+    private boolean isLadderReachable(Board board, int entryX, int entryY, int maxSteps) {
+        int size = board.getSize();
+        Arrays.fill(distance, 0, size * size, -1);
+        int head = 0, tail = 0;
+        distance[entryX * size + entryY] = 0;
+        queue[tail++] = entryX * size + entryY;
+
+        while (head < tail) {
+            int i = queue[head++];
+            if (distance[i] == maxSteps) {
+                continue;
+            }
+            int x = i / size, y = i % size;
+            for (Direction d : DIRECTIONS) {
+                int nx = x + d.getDx(), ny = y + d.getDy();
+                if (!board.inBounds(nx, ny) || board.isWall(nx, ny) || distance[nx * size + ny] >= 0) {
+                    continue;
+                }
+                byte code = board.getItemCode(nx, ny);
+                if (code == Board.LADDER) {
+                    return true;
+                }
+                if (code == Board.TRAP || code == Board.MELEE_MUTANT || code == Board.RANGED_MUTANT) {
+                    continue;
+                }
+                distance[nx * size + ny] = distance[i] + 1;
+                queue[tail++] = nx * size + ny;
+            }
+        }
+        return false;
+    }
+}
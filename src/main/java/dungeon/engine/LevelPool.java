@@ -0,0 +1,104 @@
+package dungeon.engine;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Background threads that build upcoming levels for engines. Each engine
+// using the pool asks for its next level as soon as the current one starts,
+// so advancing usually just swaps in a finished board. Levels depend only
+// on the seed, level, difficulty and entry, so a game plays the same with
+// or without a pool.
+//
+// One pool can be shared by any number of engines, e.g. all server sessions.
+// Closing it cancels the levels still waiting to be built; engines then
+// build those themselves when they get there.
+public class LevelPool implements AutoCloseable {
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final ExecutorService executor;
+    // Levels asked for and not built yet, cancelled on close
+    private final Set<CompletableFuture<BuiltLevel>> pending = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    // One generator per worker thread, so its work arrays are reused from
+    // level to level instead of being grown again for every prefetch
+    private final ThreadLocal<LevelGenerator> generators = ThreadLocal.withInitial(LevelGenerator::new);
+
+    public LevelPool() {
+        this(1);
+    }
+
+    public LevelPool(int threads) {
+        int pool = POOL_COUNT.incrementAndGet();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "level-pool-" + pool + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // A finished level and how long it took to build
+    static final class BuiltLevel {
+        final Board board;
+        final long nanos;
+
+        BuiltLevel(Board board, long nanos) {
+            this.board = board;
+            this.nanos = nanos;
+        }
+    }
+
+    // Starts building a level. If the pool is closed the level is built on
+    // the calling thread instead.
+    CompletableFuture<BuiltLevel> prefetch(int size, int level, int difficulty, int maxSteps, long seed,
+                                      LevelGenerator generator, int entryX, int entryY) {
+        // The engine's generator belongs to the engine's thread, so take a
+        // copy of its settings now (the copy has no work arrays of its own)
+        LevelGenerator settings = new LevelGenerator(generator);
+        CompletableFuture<BuiltLevel> future = new CompletableFuture<>();
+        pending.add(future);
+        try {
+            executor.execute(() -> {
+                try {
+                    // Skip levels the engine no longer wants
+                    if (!future.isDone()) {
+                        LevelGenerator worker = generators.get();
+                        worker.copySettings(settings);
+                        long start = System.nanoTime();
+                        Board board = GameEngine.buildLevel(size, level, difficulty, maxSteps, seed, worker,
+                                entryX, entryY);
+                        future.complete(new BuiltLevel(board, System.nanoTime() - start));
+                    }
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    pending.remove(future);
+                }
+            });
+            return future;
+        } catch (RejectedExecutionException e) {
+            pending.remove(future);
+            long start = System.nanoTime();
+            Board board = GameEngine.buildLevel(size, level, difficulty, maxSteps, seed, generator, entryX, entryY);
+            return CompletableFuture.completedFuture(new BuiltLevel(board, System.nanoTime() - start));
+        }
+    }
+
+    boolean isClosed() { return closed; }
+
+    // Stops the threads. Levels still queued are cancelled rather than left
+    // to never complete.
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+        for (CompletableFuture<BuiltLevel> future : pending) {
+            future.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package dungeon.engine;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Bounded ring buffer of game messages. Every message gets a sequence number
+// (0, 1, 2, ...) so readers can keep a cursor and fetch only what is new.
+// Once the buffer is full the oldest messages are overwritten.
+//
+// Events are stored as their type and arguments and only rendered to text
+// when a message is read, so logging a step allocates nothing.
+public class MessageLog implements GameListener {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final GameEvent[] events;
+    private final int[] args;       // two per slot
+    private final String[] texts;   // plain text messages, null for events
+    private long next; // sequence number the next message will get
+    private long first; // no messages before this one are retained
+
+    public MessageLog() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MessageLog(int capacity) {
+        capacity = Math.max(1, capacity);
+        this.events = new GameEvent[capacity];
+        this.args = new int[capacity * 2];
+        this.texts = new String[capacity];
+        this.next = 0;
+    }
+
+    // Copy with a different capacity, keeping the newest messages that fit
+    // and every sequence number
+    public MessageLog(MessageLog other, int capacity) {
+        this(capacity);
+        this.next = other.next;
+        this.first = Math.max(other.getFirstSequence(), next - events.length);
+        for (long seq = first; seq < next; seq++) {
+            int from = (int) (seq % other.events.length);
+            int to = (int) (seq % events.length);
+            events[to] = other.events[from];
+            args[to * 2] = other.args[from * 2];
+            args[to * 2 + 1] = other.args[from * 2 + 1];
+            texts[to] = other.texts[from];
+        }
+    }
+
+    public void add(String message) {
+        int slot = (int) (next % events.length);
+        events[slot] = null;
+        texts[slot] = message;
+        next++;
+    }
+
+    @Override
+    public void onEvent(GameEvent event, int a, int b) {
+        int slot = (int) (next % events.length);
+        events[slot] = event;
+        args[slot * 2] = a;
+        args[slot * 2 + 1] = b;
+        texts[slot] = null;
+        next++;
+    }
+
+    public int getCapacity() { return events.length; }
+
+    // Sequence number of the next message, i.e. a cursor past everything logged so far
+    public long getSequence() { return next; }
+
+    // Sequence number of the oldest message still retained
+    public long getFirstSequence() {
+        return Math.max(first, next - events.length);
+    }
+
+    public int size() {
+        return (int) (next - getFirstSequence());
+    }
+
+    // Message with the given sequence number, or null if it was overwritten or not logged yet
+    public String get(long sequence) {
+        if (sequence < getFirstSequence() || sequence >= next) {
+            return null;
+        }
+        return render((int) (sequence % events.length));
+    }
+
+    // Passes every retained message from the cursor on to the action and
+    // returns the new cursor. Messages already overwritten are skipped.
+    public long forEachSince(long cursor, Consumer<String> action) {
+        for (long seq = Math.max(cursor, getFirstSequence()); seq < next; seq++) {
+            action.accept(render((int) (seq % events.length)));
+        }
+        return next;
+    }
+
+    // Same as forEachSince but hands over the raw events without rendering
+    // them. Plain text messages are skipped.
+    public long forEachEventSince(long cursor, GameListener listener) {
+        for (long seq = Math.max(cursor, getFirstSequence()); seq < next; seq++) {
+            int slot = (int) (seq % events.length);
+            if (events[slot] != null) {
+                listener.onEvent(events[slot], args[slot * 2], args[slot * 2 + 1]);
+            }
+        }
+        return next;
+    }
+
+    // Copy of the retained messages, oldest first
+    public List<String> toList() {
+        List<String> list = new ArrayList<>(size());
+        forEachSince(0, list::add);
+        return list;
+    }
+
+    private String render(int slot) {
+        GameEvent event = events[slot];
+        return event == null ? texts[slot] : event.describe(args[slot * 2], args[slot * 2 + 1]);
+    }
+}
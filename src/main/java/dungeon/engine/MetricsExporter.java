@@ -0,0 +1,72 @@
+package dungeon.engine;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Appends snapshots of EngineMetrics to a local file, one line per
+// snapshot: a timestamp followed by name=value pairs, e.g.
+//   2025-05-30T10:15:00Z moves=1200 moves.blocked=31 move.count=1231 ...
+public class MetricsExporter implements AutoCloseable {
+    private final EngineMetrics metrics;
+    private final Path path;
+    private final AtomicLong failures = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+
+    public MetricsExporter(EngineMetrics metrics, Path path) {
+        this.metrics = metrics;
+        this.path = path;
+    }
+
+    // Scheduled snapshots that could not be written
+    public long getFailures() { return failures.get(); }
+
+    // Appends one snapshot now
+    public void export() throws IOException {
+        StringBuilder line = new StringBuilder(Instant.now().toString());
+        for (Map.Entry<String, Long> entry : metrics.snapshot().entrySet()) {
+            line.append(' ').append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        line.append('\n');
+        Files.writeString(path, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Appends a snapshot every period on a background thread until closed
+    public synchronized void start(long period, TimeUnit unit) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Exporter already started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // A task that throws is never run again, so a failed write is only
+        // counted and the next snapshot is tried as usual
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                export();
+            } catch (IOException e) {
+                failures.incrementAndGet();
+            }
+        }, period, period, unit);
+    }
+
+    // Stops the background thread and writes a final snapshot
+    @Override
+    public synchronized void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            export();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package dungeon.engine;
+
+// Summary of a batch of moves played with GameEngine.movePlayer(Direction[])
+// or movePlayerPacked
+public class MoveBatchResult {
+    private final int played;
+    private final int moved;
+    private final int scoreGained;
+    private final int hpChange;
+    private final GameState state;
+
+    MoveBatchResult(int played, int moved, int scoreGained, int hpChange, GameState state) {
+        this.played = played;
+        this.moved = moved;
+        this.scoreGained = scoreGained;
+        this.hpChange = hpChange;
+        this.state = state;
+    }
+
+    // Moves taken from the batch, including blocked ones. Less than the batch
+    // length if the game ended part way through.
+    public int getPlayed() { return played; }
+
+    // Moves that changed the player's position
+    public int getMoved() { return moved; }
+
+    public int getBlocked() { return played - moved; }
+    public int getScoreGained() { return scoreGained; }
+    public int getHpChange() { return hpChange; }
+    public GameState getState() { return state; }
+
+    @Override
+    public String toString() {
+        return "played=" + played + " moved=" + moved + " score=" + (scoreGained >= 0 ? "+" : "") + scoreGained
+                + " hp=" + (hpChange >= 0 ? "+" : "") + hpChange + " state=" + state;
+    }
+}
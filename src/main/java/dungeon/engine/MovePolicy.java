@@ -0,0 +1,23 @@
+package dungeon.engine;
+import java.util.SplittableRandom;
+
+// Chooses the next move for a simulated player. Policies are shared between
+// threads, so any per-game randomness must come from the given random.
+@FunctionalInterface
+public interface MovePolicy {
+    Direction chooseMove(GameEngine engine, SplittableRandom random);
+
+    // Uniformly random moves
+    MovePolicy RANDOM = new RandomMoves();
+}
+
+// Interfaces can't keep a private copy of Direction.values(), which clones
+// the array on every call
+final class RandomMoves implements MovePolicy {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    @Override
+    public Direction chooseMove(GameEngine engine, SplittableRandom random) {
+        return DIRECTIONS[random.nextInt(4)];
+    }
+}
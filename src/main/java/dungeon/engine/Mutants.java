@@ -0,0 +1,258 @@
+package dungeon.engine;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Moving monsters for one level. The board still holds a MELEE_MUTANT or
+// RANGED_MUTANT code on each monster's tile, so fighting, ranged attacks and
+// drawing work as before; this layer only knows where the monsters are so
+// they can be moved without scanning the map. The engine passes on every
+// mutant the board gains or loses (see tileChanged), so monsters placed or
+// defeated after the level is built are tracked too.
+//
+// Positions live in primitive arrays, and monsters are also chained into
+// buckets of BUCKET x BUCKET tiles. Each tick only the buckets within the
+// activation radius of the player are visited, so a turn costs time in
+// proportion to the monsters near the player, not to the map area.
+//
+// Each active monster takes one step towards the player onto an empty tile,
+// trying the longer axis first. Melee mutants stop next to the player and
+// hit them on arrival, and ranged mutants stop once the player is in their
+// attack range. Monsters move in order of their tile index, so the result
+// only depends on the board.
+class Mutants {
+    private static final int BUCKET_BITS = 3;
+    private static final int BUCKET = 1 << BUCKET_BITS;
+
+    private final Board board;
+    private final int size;
+    private final int bucketsPerRow;
+    private final int radius;
+
+    // Monster i is at (x[i], y[i]); count monsters in total
+    private int[] x, y;
+    private int count;
+
+    // head[bucket] is the first monster in the bucket, next[i] the one after i, -1 ends
+    private final int[] head;
+    private int[] next;
+
+    // Per-tick scratch: (tile index << 32 | monster) of the active monsters
+    private long[] active = new long[16];
+
+    // Set once a fork shares these mutants; after that they never change
+    // and each engine copies them before moving or removing one
+    private boolean shared;
+
+    Mutants(Board board, int radius) {
+        this.board = board;
+        this.size = board.getSize();
+        this.radius = radius;
+        this.bucketsPerRow = (size + BUCKET - 1) >> BUCKET_BITS;
+        this.head = new int[bucketsPerRow * bucketsPerRow];
+        Arrays.fill(head, -1);
+        this.x = new int[16];
+        this.y = new int[16];
+        this.next = new int[16];
+
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                byte code = board.getItemCode(i, j);
+                if (code == Board.MELEE_MUTANT || code == Board.RANGED_MUTANT) {
+                    add(i, j);
+                }
+            }
+        }
+    }
+
+    // Copy for a forked board
+    private Mutants(Mutants other, Board board) {
+        this.board = board;
+        this.size = other.size;
+        this.radius = other.radius;
+        this.bucketsPerRow = other.bucketsPerRow;
+        this.x = other.x.clone();
+        this.y = other.y.clone();
+        this.count = other.count;
+        this.head = other.head.clone();
+        this.next = other.next.clone();
+    }
+
+    Mutants copyFor(Board board) {
+        return new Mutants(this, board);
+    }
+
+    Mutants share() {
+        shared = true;
+        return this;
+    }
+
+    boolean isShared() { return shared; }
+
+    int getCount() { return count; }
+    int getRadius() { return radius; }
+
+    private int bucketOf(int tx, int ty) {
+        return (tx >> BUCKET_BITS) * bucketsPerRow + (ty >> BUCKET_BITS);
+    }
+
+    private void add(int tx, int ty) {
+        if (count == x.length) {
+            x = Arrays.copyOf(x, count * 2);
+            y = Arrays.copyOf(y, count * 2);
+            next = Arrays.copyOf(next, count * 2);
+        }
+        x[count] = tx;
+        y[count] = ty;
+        link(count, bucketOf(tx, ty));
+        count++;
+    }
+
+    private void link(int i, int bucket) {
+        next[i] = head[bucket];
+        head[bucket] = i;
+    }
+
+    private void unlink(int i, int bucket) {
+        if (head[bucket] == i) {
+            head[bucket] = next[i];
+            return;
+        }
+        int k = head[bucket];
+        while (next[k] != i) {
+            k = next[k];
+        }
+        next[k] = next[i];
+    }
+
+    // Monster on a tile, or -1
+    private int find(int tx, int ty) {
+        for (int i = head[bucketOf(tx, ty)]; i >= 0; i = next[i]) {
+            if (x[i] == tx && y[i] == ty) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void remove(int i) {
+        unlink(i, bucketOf(x[i], y[i]));
+        // Move the last monster into the free slot
+        int last = --count;
+        if (i != last) {
+            int lastBucket = bucketOf(x[last], y[last]);
+            unlink(last, lastBucket);
+            x[i] = x[last];
+            y[i] = y[last];
+            link(i, lastBucket);
+        }
+    }
+
+    // Starts or stops tracking a tile the board says gained or lost a
+    // monster, e.g. one placed by setItemCode or defeated by the player
+    void tileChanged(int tx, int ty) {
+        int i = find(tx, ty);
+        if (Board.isMutant(board.getItemCode(tx, ty))) {
+            if (i < 0) {
+                add(tx, ty);
+            }
+        } else if (i >= 0) {
+            remove(i);
+        }
+    }
+
+    // Saved form: the count, then each monster's tile index
+    int byteSize() {
+        return 4 + 4 * count;
+    }
+
+    void write(ByteBuffer buffer) {
+        buffer.putInt(count);
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(x[i] * size + y[i]);
+        }
+    }
+
+    // Replaces the monsters with the saved ones, without scanning the board
+    void read(ByteBuffer buffer) {
+        // Every non-empty bucket holds one of the current monsters
+        for (int i = 0; i < count; i++) {
+            head[bucketOf(x[i], y[i])] = -1;
+        }
+        count = 0;
+        for (int n = buffer.getInt(); n > 0; n--) {
+            int tile = buffer.getInt();
+            add(tile / size, tile % size);
+        }
+    }
+
+    // Moves every monster within the radius of the player one step and
+    // returns how many melee mutants reached the player
+    int tick(int px, int py) {
+        int n = 0;
+        int minBx = Math.max(0, px - radius) >> BUCKET_BITS, maxBx = Math.min(size - 1, px + radius) >> BUCKET_BITS;
+        int minBy = Math.max(0, py - radius) >> BUCKET_BITS, maxBy = Math.min(size - 1, py + radius) >> BUCKET_BITS;
+        for (int bx = minBx; bx <= maxBx; bx++) {
+            for (int by = minBy; by <= maxBy; by++) {
+                for (int i = head[bx * bucketsPerRow + by]; i >= 0; i = next[i]) {
+                    if (Math.abs(x[i] - px) <= radius && Math.abs(y[i] - py) <= radius) {
+                        if (n == active.length) {
+                            active = Arrays.copyOf(active, n * 2);
+                        }
+                        active[n++] = (long) (x[i] * size + y[i]) << 32 | i;
+                    }
+                }
+            }
+        }
+        Arrays.sort(active, 0, n);
+
+        int hits = 0;
+        for (int k = 0; k < n; k++) {
+            if (step((int) active[k], px, py)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    // True if a melee mutant stepped next to the player
+    private boolean step(int i, int px, int py) {
+        int dx = px - x[i], dy = py - y[i];
+        byte code = board.getItemCode(x[i], y[i]);
+        if (Math.abs(dx) + Math.abs(dy) <= 1) {
+            return false; // next to the player
+        }
+        if (code == Board.RANGED_MUTANT
+                && ((dx == 0 && Math.abs(dy) <= 2) || (dy == 0 && Math.abs(dx) <= 2))) {
+            return false; // player already in range
+        }
+
+        int sx = Integer.signum(dx), sy = Integer.signum(dy);
+        boolean moved;
+        if (Math.abs(dx) >= Math.abs(dy)) {
+            moved = tryMove(i, code, sx, 0) || (sy != 0 && tryMove(i, code, 0, sy));
+        } else {
+            moved = tryMove(i, code, 0, sy) || (sx != 0 && tryMove(i, code, sx, 0));
+        }
+        return moved && code == Board.MELEE_MUTANT && Math.abs(px - x[i]) + Math.abs(py - y[i]) == 1;
+    }
+
+    private boolean tryMove(int i, byte code, int mx, int my) {
+        int nx = x[i] + mx, ny = y[i] + my;
+        if (!board.inBounds(nx, ny) || board.isWall(nx, ny) || board.getItemCode(nx, ny) != Board.EMPTY) {
+            return false;
+        }
+        // Move the entry before the tiles, so the board's reports of both
+        // changes find the index already up to date
+        int fromX = x[i], fromY = y[i];
+        int from = bucketOf(fromX, fromY), to = bucketOf(nx, ny);
+        if (from != to) {
+            unlink(i, from);
+            link(i, to);
+        }
+        x[i] = nx;
+        y[i] = ny;
+        board.setItemCode(fromX, fromY, Board.EMPTY);
+        board.setItemCode(nx, ny, code);
+        return true;
+    }
+}
@@ -0,0 +1,172 @@
+package dungeon.engine;
+import java.util.Arrays;
+
+// Shortest paths to the ladder and to gold that avoid traps and mutants.
+//
+// Rather than searching from the player on every query, a breadth-first
+// search from the targets builds a distance field holding the number of
+// steps from every tile to the nearest target. Fields are cached and only
+// rebuilt when the board changes (see Board.getVersion), so a query is an
+// array lookup. All work arrays are allocated once and reused.
+//
+// Not thread-safe: use one PathFinder per thread.
+public class PathFinder {
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private int[] ladderField = new int[0];
+    private int[] goldField = new int[0];
+    private int[] queue = new int[0];
+
+    private Board ladderBoard, goldBoard;
+    private int ladderVersion, goldVersion;
+
+    // Steps from (x, y) to the ladder, or UNREACHABLE
+    public int distanceToLadder(Board board, int x, int y) {
+        return distance(ladderField(board), board, x, y);
+    }
+
+    // Steps from (x, y) to the nearest gold, or UNREACHABLE
+    public int distanceToGold(Board board, int x, int y) {
+        return distance(goldField(board), board, x, y);
+    }
+
+    // First move of a shortest path to the ladder, or null if there is none
+    public Direction nextStepToLadder(Board board, int x, int y) {
+        return nextStep(ladderField(board), board, x, y);
+    }
+
+    // First move of a shortest path to the nearest gold, or null if there is none
+    public Direction nextStepToGold(Board board, int x, int y) {
+        return nextStep(goldField(board), board, x, y);
+    }
+
+    // Suggested move for the player: collect the nearest gold if there are
+    // still enough steps left to reach the ladder afterwards, otherwise head
+    // for the ladder. Returns null if neither can be reached.
+    public Direction hint(GameEngine engine) {
+        Board board = engine.getBoard();
+        int x = engine.getPlayerX();
+        int y = engine.getPlayerY();
+        int stepsLeft = engine.getMaxSteps() - engine.getSteps();
+
+        int[] gold = goldField(board);
+        int toGold = distance(gold, board, x, y);
+        if (toGold != UNREACHABLE) {
+            // Walk down the gold field to find which gold we would reach
+            int size = board.getSize();
+            int gx = x, gy = y;
+            for (int i = 0; i < toGold; i++) {
+                Direction d = nextStep(gold, board, gx, gy);
+                gx += d.getDx();
+                gy += d.getDy();
+            }
+            int goldToLadder = ladderField(board)[gx * size + gy];
+            if (goldToLadder != UNREACHABLE && toGold + goldToLadder <= stepsLeft) {
+                return nextStep(gold, board, x, y);
+            }
+        }
+        return nextStepToLadder(board, x, y);
+    }
+
+    // Policy that always follows hint(), falling back to random moves
+    public static MovePolicy policy() {
+        ThreadLocal<PathFinder> finders = ThreadLocal.withInitial(PathFinder::new);
+        return (engine, random) -> {
+            Direction d = finders.get().hint(engine);
+            return d != null ? d : DIRECTIONS[random.nextInt(4)];
+        };
+    }
+
+    private int[] ladderField(Board board) {
+        if (board != ladderBoard || board.getVersion() != ladderVersion) {
+            ladderField = ensureCapacity(ladderField, board);
+            build(ladderField, board, Board.LADDER);
+            ladderBoard = board;
+            ladderVersion = board.getVersion();
+        }
+        return ladderField;
+    }
+
+    private int[] goldField(Board board) {
+        if (board != goldBoard || board.getVersion() != goldVersion) {
+            goldField = ensureCapacity(goldField, board);
+            build(goldField, board, Board.GOLD);
+            goldBoard = board;
+            goldVersion = board.getVersion();
+        }
+        return goldField;
+    }
+
+    private int[] ensureCapacity(int[] field, Board board) {
+        int tiles = board.getSize() * board.getSize();
+        if (queue.length < tiles) {
+            queue = new int[tiles];
+        }
+        return field.length < tiles ? new int[tiles] : field;
+    }
+
+    // Multi-source breadth-first search outwards from every tile holding target
+    private void build(int[] field, Board board, byte target) {
+        int size = board.getSize();
+        int tiles = size * size;
+        Arrays.fill(field, 0, tiles, UNREACHABLE);
+
+        int head = 0, tail = 0;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (!board.isWall(x, y) && board.getItemCode(x, y) == target) {
+                    field[x * size + y] = 0;
+                    queue[tail++] = x * size + y;
+                }
+            }
+        }
+
+        while (head < tail) {
+            int i = queue[head++];
+            int x = i / size, y = i % size;
+            int next = field[i] + 1;
+            for (Direction d : DIRECTIONS) {
+                int nx = x + d.getDx(), ny = y + d.getDy();
+                if (board.inBounds(nx, ny) && isPassable(board, nx, ny) && field[nx * size + ny] == UNREACHABLE) {
+                    field[nx * size + ny] = next;
+                    queue[tail++] = nx * size + ny;
+                }
+            }
+        }
+    }
+
+    private static boolean isPassable(Board board, int x, int y) {
+        if (board.isWall(x, y)) {
+            return false;
+        }
+        byte code = board.getItemCode(x, y);
+        return code != Board.TRAP && code != Board.MELEE_MUTANT && code != Board.RANGED_MUTANT;
+    }
+
+    // The player can stand on a tile the search treats as blocked (such as
+    // the entry in the outer wall), so look at the neighbours instead
+    private static int distance(int[] field, Board board, int x, int y) {
+        int size = board.getSize();
+        if (field[x * size + y] == 0) {
+            return 0;
+        }
+        Direction d = nextStep(field, board, x, y);
+        return d == null ? UNREACHABLE : field[(x + d.getDx()) * size + y + d.getDy()] + 1;
+    }
+
+    private static Direction nextStep(int[] field, Board board, int x, int y) {
+        int size = board.getSize();
+        Direction best = null;
+        int bestDistance = UNREACHABLE;
+        for (Direction d : DIRECTIONS) {
+            int nx = x + d.getDx(), ny = y + d.getDy();
+            if (board.inBounds(nx, ny) && field[nx * size + ny] < bestDistance) {
+                best = d;
+                bestDistance = field[nx * size + ny];
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,151 @@
+package dungeon.engine;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+// Compact recording of a game: the engine settings and seed plus every move
+// attempted, packed 2 bits per Direction (32 moves per long). Since a seeded
+// engine is deterministic, playing the moves back reproduces the game exactly.
+// Every setting that changes the game is kept: dungeon depth, mutant
+// movement and the level generator's item counts and validation.
+public class Replay implements GameListener {
+    private static final int VERSION = 1;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int difficulty;
+    private final int size;
+    private final long seed;
+    private int levelCount = 2;
+    private int stepsPerLevel;
+    private int mutantRadius;
+    private final LevelGenerator generator = new LevelGenerator();
+    private long[] moves;
+    private int moveCount;
+
+    // Replay of a game with the default settings
+    public Replay(int difficulty, int size, long seed) {
+        this.difficulty = difficulty;
+        this.size = size;
+        this.seed = seed;
+        this.moves = new long[4];
+        this.moveCount = 0;
+    }
+
+    // Starts recording a game. Must be called before the first move is made.
+    public static Replay record(GameEngine engine) {
+        Replay replay = new Replay(engine.getStartingDifficulty(), engine.getSize(), engine.getSeed());
+        replay.levelCount = engine.getLevelCount();
+        replay.stepsPerLevel = engine.getStepsPerLevel();
+        replay.mutantRadius = engine.getMutantRadius();
+        replay.generator.copySettings(engine.generator);
+        engine.addListener(replay);
+        return replay;
+    }
+
+    @Override
+    public void onEvent(GameEvent event, int a, int b) {
+        // Every move attempt ends in exactly one of these events
+        if (event == GameEvent.MOVED || event == GameEvent.HIT_WALL || event == GameEvent.HIT_BOUNDARY) {
+            add(DIRECTIONS[a]);
+        }
+    }
+
+    public void add(Direction direction) {
+        if ((moveCount >> 5) == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[moveCount >> 5] |= (long) direction.ordinal() << ((moveCount & 31) << 1);
+        moveCount++;
+    }
+
+    public Direction getMove(int index) {
+        return DIRECTIONS[(int) (moves[index >> 5] >>> ((index & 31) << 1)) & 3];
+    }
+
+    public int getMoveCount() { return moveCount; }
+    public int getDifficulty() { return difficulty; }
+    public int getSize() { return size; }
+    public long getSeed() { return seed; }
+    public int getLevelCount() { return levelCount; }
+    public int getStepsPerLevel() { return stepsPerLevel; }
+    public int getMutantRadius() { return mutantRadius; }
+
+    // Re-runs the recorded game on a fresh headless engine and returns it in its final state
+    public GameEngine play() {
+        GameEngine engine = new GameEngine(difficulty, size, seed, new LevelGenerator(generator));
+        engine.setDungeonDepth(levelCount, stepsPerLevel);
+        engine.setMutantMovement(mutantRadius);
+        engine.movePlayerPacked(moves, moveCount);
+        return engine;
+    }
+
+    // Plays the replay back and checks it ends with the given score and state
+    public boolean verify(int score, GameState state) {
+        GameEngine engine = play();
+        return engine.getPlayer().getScore() == score && engine.getGameState() == state;
+    }
+
+    public void write(DataOutput out) throws IOException {
+        out.writeByte(VERSION);
+        out.writeByte(difficulty);
+        out.writeInt(size);
+        out.writeLong(seed);
+        out.writeInt(levelCount);
+        out.writeInt(stepsPerLevel);
+        out.writeInt(mutantRadius);
+        for (byte code = Board.LADDER; code < Board.PLAYER; code++) {
+            out.writeInt(generator.getCount(code));
+        }
+        out.writeBoolean(generator.isValidate());
+        out.writeInt(generator.getMaxAttempts());
+        out.writeInt(moveCount);
+        for (int i = 0; i < (moveCount + 31) >> 5; i++) {
+            out.writeLong(moves[i]);
+        }
+    }
+
+    public static Replay read(DataInput in) throws IOException {
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported replay version " + version);
+        }
+        int difficulty = in.readByte();
+        int size = in.readInt();
+        if (size < 1 || size > GameEngine.MAX_SIZE) {
+            throw new IOException("Invalid map size " + size);
+        }
+        Replay replay = new Replay(difficulty, size, in.readLong());
+        replay.levelCount = in.readInt();
+        replay.stepsPerLevel = in.readInt();
+        replay.mutantRadius = in.readInt();
+        if (replay.levelCount < 1 || replay.stepsPerLevel < 0 || replay.mutantRadius < 0) {
+            throw new IOException("Invalid replay settings");
+        }
+        try {
+            for (byte code = Board.LADDER; code < Board.PLAYER; code++) {
+                replay.generator.setCount(code, in.readInt());
+            }
+            replay.generator.setValidate(in.readBoolean());
+            replay.generator.setMaxAttempts(in.readInt());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid level generator settings", e);
+        }
+
+        int count = in.readInt();
+        if (count < 0 || count > Integer.MAX_VALUE - 31) {
+            throw new IOException("Invalid move count " + count);
+        }
+        // Grow the moves as they are read, so a corrupt count fails at the
+        // end of the input instead of allocating for moves that aren't there
+        int words = (count + 31) >> 5;
+        for (int i = 0; i < words; i++) {
+            if (i == replay.moves.length) {
+                replay.moves = Arrays.copyOf(replay.moves, Math.min(words, i * 2));
+            }
+            replay.moves[i] = in.readLong();
+        }
+        replay.moveCount = count;
+        return replay;
+    }
+}
@@ -0,0 +1,115 @@
+package dungeon.engine;
+import java.util.Arrays;
+
+// Aggregated outcome of many simulated games at one difficulty. Each worker
+// fills its own result and results are merged at the end, so no state is
+// shared while games are running. Deaths are also counted by cause: the
+// last event that did damage before the player died.
+public class SimulationResult {
+    private static final GameEvent[] EVENTS = GameEvent.values();
+
+    private final int difficulty;
+    private long games;
+    private long wins;
+    private long deaths;      // lost with no HP left
+    private long outOfSteps;  // lost by running out of steps
+    private long stalled;     // gave up after too many blocked moves
+    private long totalScore;
+    private long totalSteps;
+    private long[] scoreHistogram = new long[32];
+    private final long[] deathCauses = new long[EVENTS.length]; // by GameEvent ordinal
+
+    // Last damaging event of the game being played on this worker
+    private GameEvent lastDamage;
+    final GameListener damageListener = (event, a, b) -> {
+        if (event.getCategory() == GameEvent.Category.DAMAGE && a > 0) {
+            lastDamage = event;
+        }
+    };
+
+    public SimulationResult(int difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    void record(GameEngine engine) {
+        games++;
+        totalSteps += engine.getSteps();
+        int score = engine.getPlayer().getScore();
+        totalScore += score;
+        if (score >= scoreHistogram.length) {
+            scoreHistogram = Arrays.copyOf(scoreHistogram, Math.max(score + 1, scoreHistogram.length * 2));
+        }
+        scoreHistogram[score]++;
+
+        if (engine.getGameState() == GameState.WON) {
+            wins++;
+        } else if (engine.getGameState() == GameState.PLAYING) {
+            stalled++;
+        } else if (engine.getPlayer().getHp() <= 0) {
+            deaths++;
+            if (lastDamage != null) {
+                deathCauses[lastDamage.ordinal()]++;
+            }
+        } else {
+            outOfSteps++;
+        }
+        lastDamage = null;
+    }
+
+    SimulationResult merge(SimulationResult other) {
+        games += other.games;
+        wins += other.wins;
+        deaths += other.deaths;
+        outOfSteps += other.outOfSteps;
+        stalled += other.stalled;
+        totalScore += other.totalScore;
+        totalSteps += other.totalSteps;
+        for (int i = 0; i < deathCauses.length; i++) {
+            deathCauses[i] += other.deathCauses[i];
+        }
+        if (other.scoreHistogram.length > scoreHistogram.length) {
+            scoreHistogram = Arrays.copyOf(scoreHistogram, other.scoreHistogram.length);
+        }
+        for (int i = 0; i < other.scoreHistogram.length; i++) {
+            scoreHistogram[i] += other.scoreHistogram[i];
+        }
+        return this;
+    }
+
+    public int getDifficulty() { return difficulty; }
+    public long getGames() { return games; }
+    public long getWins() { return wins; }
+    public long getDeaths() { return deaths; }
+    public long getOutOfSteps() { return outOfSteps; }
+    public long getStalled() { return stalled; }
+
+    // Deaths where the given event (e.g. TRAP_TRIGGERED) did the last damage
+    public long getDeaths(GameEvent cause) { return deathCauses[cause.ordinal()]; }
+
+    public double getWinRate() {
+        return games == 0 ? 0 : (double) wins / games;
+    }
+
+    public double getMeanScore() {
+        return games == 0 ? 0 : (double) totalScore / games;
+    }
+
+    public double getMeanSteps() {
+        return games == 0 ? 0 : (double) totalSteps / games;
+    }
+
+    // Number of games that ended with each score
+    public long[] getScoreHistogram() {
+        return scoreHistogram.clone();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("difficulty %2d: %d games, win rate %.3f, mean score %.2f, mean steps %.1f, "
+                        + "deaths %d (trap %d, melee %d, ranged %d), out of steps %d, stalled %d",
+                difficulty, games, getWinRate(), getMeanScore(), getMeanSteps(), deaths,
+                getDeaths(GameEvent.TRAP_TRIGGERED),
+                getDeaths(GameEvent.MELEE_MUTANT_FOUGHT) + getDeaths(GameEvent.MELEE_MUTANT_HIT),
+                getDeaths(GameEvent.RANGED_MUTANT_HIT), outOfSteps, stalled);
+    }
+}
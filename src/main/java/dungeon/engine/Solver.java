@@ -0,0 +1,398 @@
+package dungeon.engine;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Finds the highest final score attainable in a seeded game, and a move
+// sequence that reaches it. Ranged mutant rolls come from the seeded random,
+// so the result is exact for that seed.
+//
+// Moves are played on real GameEngines, so the rules are never duplicated.
+// The search is a depth-first branch and bound: each worker saves the
+// engine into a per-depth snapshot buffer before trying a move and restores
+// it afterwards. It is pruned by
+//  - a transposition table keyed on the packed state (level, position,
+//    remaining consumables, random state), which skips states already
+//    reached with at least the current score and hp in no more steps,
+//  - an upper bound of two points per scoring item still reachable in the
+//    steps left (plus level 2 if the ladder is in reach), checked against
+//    the best score found so far,
+//  - skipping blocked moves, which change nothing.
+// Moves towards the nearest scoring item are tried first, so the first dive
+// is already a good game and the bound starts pruning early. The first few
+// moves are expanded up front and the subtrees are searched in parallel.
+//
+// The search can be exponential on hard levels, so it stops after a node
+// limit; Solution.isExact() tells whether the score is proven optimal.
+//
+// A solver can search its game many times, from the start or from any
+// position reached in it. Each search starts from scratch, but only one may
+// run at a time.
+public class Solver {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int MAX_CONSUMABLES = 24; // bits available in the packed state
+    private static final int MAX_LAYOUTS = 1 << 16;
+    private static final int DEFAULT_TABLE_ENTRIES = 1 << 22;
+    private static final long DEFAULT_NODE_LIMIT = 50_000_000;
+
+    private final int difficulty;
+    private final int size;
+    private final long seed;
+    private final int splitDepth;
+    private final long nodeLimit;
+    private final int level2ScoringItems;
+
+    private final TranspositionTable table = new TranspositionTable(DEFAULT_TABLE_ENTRIES);
+    private final AtomicInteger bestScore = new AtomicInteger(-1);
+    private final AtomicLong nodes = new AtomicLong();
+    private final Map<ByteBuffer, Layout> layouts = new ConcurrentHashMap<>();
+    private final AtomicInteger nextLayoutId = new AtomicInteger();
+    private Solution best;
+
+    public Solver(int difficulty, int size, long seed) {
+        this(difficulty, size, seed, 6, DEFAULT_NODE_LIMIT);
+    }
+
+    // splitDepth is how many moves are expanded before the search goes
+    // parallel; nodeLimit is how many states to visit before giving up
+    public Solver(int difficulty, int size, long seed, int splitDepth, long nodeLimit) {
+        if (size > 255) {
+            throw new IllegalArgumentException("Solver supports maps up to 255x255");
+        }
+        this.difficulty = difficulty;
+        this.size = size;
+        this.seed = seed;
+        this.splitDepth = splitDepth;
+        this.nodeLimit = nodeLimit;
+
+        // Gold, melee and ranged mutants placed on level 2, where the
+        // generator sees the clamped difficulty plus 4
+        LevelGenerator generator = new LevelGenerator();
+        int level2Difficulty = Math.max(0, Math.min(10, difficulty)) + 4;
+        this.level2ScoringItems = generator.countFor(Board.GOLD, level2Difficulty)
+                + generator.countFor(Board.MELEE_MUTANT, level2Difficulty)
+                + generator.countFor(Board.RANGED_MUTANT, level2Difficulty);
+    }
+
+    // Outcome of a search
+    public static class Solution {
+        private final int score;
+        private final GameState outcome;
+        private final Direction[] moves;
+        private final long nodes;
+        private final boolean exact;
+
+        Solution(int score, GameState outcome, Direction[] moves, long nodes, boolean exact) {
+            this.score = score;
+            this.outcome = outcome;
+            this.moves = moves;
+            this.nodes = nodes;
+            this.exact = exact;
+        }
+
+        public int getScore() { return score; }
+        public GameState getOutcome() { return outcome; }
+        public Direction[] getMoves() { return moves.clone(); }
+        public long getNodes() { return nodes; }
+
+        // False if the node limit was hit, so a better score may exist
+        public boolean isExact() { return exact; }
+    }
+
+    public Solution solve() {
+        return search(new GameEngine(difficulty, size, seed));
+    }
+
+    // Best result reachable from a position in this solver's game, e.g.
+    // after some moves were played. The moves continue from the position,
+    // which is left as it is.
+    public Solution solve(GameEngine position) {
+        if (position.getSize() != size || position.getSeed() != seed
+                || position.getStartingDifficulty() != Math.max(0, Math.min(10, difficulty))) {
+            throw new IllegalArgumentException("Position is from a different game");
+        }
+        try {
+            return search(GameSnapshot.fromBytes(GameSnapshot.toBytes(position)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Solution search(GameEngine start) {
+        // Bounds and states from an earlier search don't hold for this one
+        table.clear();
+        bestScore.set(-1);
+        nodes.set(0);
+        synchronized (this) {
+            best = null;
+        }
+        Layout first = layoutOf(start.map);
+
+        // Expand the first few moves sequentially, then search each subtree in parallel
+        List<Node> frontier = new ArrayList<>();
+        new Worker(start).expand(0, first, frontier);
+
+        ThreadLocal<Worker> workers = ThreadLocal.withInitial(() -> new Worker(new GameEngine(difficulty, size, seed)));
+        frontier.parallelStream().forEach(node -> workers.get().search(node));
+
+        synchronized (this) {
+            long visited = nodes.get();
+            if (best == null) {
+                // Stopped before finishing a single game
+                return new Solution(start.player.getScore(), GameState.PLAYING, new Direction[0], visited, false);
+            }
+            return new Solution(best.score, best.outcome, best.moves, visited, visited <= nodeLimit);
+        }
+    }
+
+    private synchronized void offerSolution(int score, GameState outcome, byte[] path, int length) {
+        if (best == null || score > best.score) {
+            Direction[] moves = new Direction[length];
+            for (int i = 0; i < length; i++) {
+                moves[i] = DIRECTIONS[path[i]];
+            }
+            best = new Solution(score, outcome, moves, 0, false);
+            bestScore.accumulateAndGet(score, Math::max);
+        }
+    }
+
+    // Item layout of a level: the tiles holding consumable items when the level started
+    private static final class Layout {
+        final int id;
+        final int[] consumables;  // tile indexes
+        final boolean[] scoring;  // whether taking the consumable gives points
+
+        Layout(int id, int[] consumables, boolean[] scoring) {
+            this.id = id;
+            this.consumables = consumables;
+            this.scoring = scoring;
+        }
+    }
+
+    private Layout layoutOf(Board board) {
+        byte[] tiles = board.getTiles();
+        Layout layout = layouts.get(ByteBuffer.wrap(tiles));
+        if (layout != null) {
+            return layout;
+        }
+
+        int[] consumables = new int[MAX_CONSUMABLES];
+        boolean[] scoring = new boolean[MAX_CONSUMABLES];
+        int count = 0;
+        for (int i = 0; i < tiles.length; i++) {
+            byte code = (byte) (tiles[i] & Board.ITEM_MASK);
+            if (code != Board.EMPTY && Board.itemFor(code).isConsumable()) {
+                if (count == MAX_CONSUMABLES) {
+                    throw new IllegalStateException("Level has more than " + MAX_CONSUMABLES + " consumable items");
+                }
+                scoring[count] = code != Board.HEALTH_POTION;
+                consumables[count++] = i;
+            }
+        }
+        int id = nextLayoutId.getAndIncrement();
+        if (id >= MAX_LAYOUTS) {
+            throw new IllegalStateException("Too many distinct level layouts to search");
+        }
+        Layout created = new Layout(id, Arrays.copyOf(consumables, count), Arrays.copyOf(scoring, count));
+        Layout existing = layouts.putIfAbsent(ByteBuffer.wrap(tiles.clone()), created);
+        return existing != null ? existing : created;
+    }
+
+    // A partially played game waiting to be searched
+    private static final class Node {
+        final byte[] snapshot;
+        final byte[] path;
+        final Layout layout;
+
+        Node(byte[] snapshot, byte[] path, Layout layout) {
+            this.snapshot = snapshot;
+            this.path = path;
+            this.layout = layout;
+        }
+    }
+
+    // Per-thread search state: one engine plus a snapshot buffer per depth
+    private final class Worker {
+        private final GameEngine engine;
+        private final ByteBuffer[] saved;
+        private final byte[] path;
+
+        // Breadth-first search work arrays, see scan()
+        private final int[] distance;
+        private final byte[] firstMove;
+        private final int[] queue;
+        private int ladderDistance;
+        private int preferredMove;
+
+        Worker(GameEngine engine) {
+            this.engine = engine;
+            this.saved = new ByteBuffer[engine.maxSteps + 2];
+            for (int i = 0; i < saved.length; i++) {
+                saved[i] = ByteBuffer.allocate(GameSnapshot.sizeOf(engine));
+            }
+            this.path = new byte[engine.maxSteps + 1];
+            this.distance = new int[size * size];
+            this.firstMove = new byte[size * size];
+            this.queue = new int[size * size];
+        }
+
+        void expand(int depth, Layout layout, List<Node> frontier) {
+            if (depth == splitDepth || engine.gameState != GameState.PLAYING) {
+                frontier.add(new Node(GameSnapshot.toBytes(engine), Arrays.copyOf(path, depth), layout));
+                return;
+            }
+            scan();
+            forEachMove(depth, layout, nextLayout -> expand(depth + 1, nextLayout, frontier));
+        }
+
+        void search(Node node) {
+            System.arraycopy(node.path, 0, path, 0, node.path.length);
+            restore(ByteBuffer.wrap(node.snapshot));
+            search(node.path.length, node.layout);
+        }
+
+        private void search(int depth, Layout layout) {
+            if (nodes.incrementAndGet() > nodeLimit) {
+                return;
+            }
+            if (engine.gameState != GameState.PLAYING) {
+                offerSolution(engine.player.getScore(), engine.gameState, path, depth);
+                return;
+            }
+
+            // Items still on the board, and the scoring ones within reach
+            scan();
+            int stepsLeft = engine.maxSteps - engine.steps;
+            int mask = 0, reachable = 0;
+            Board board = engine.map;
+            for (int i = 0; i < layout.consumables.length; i++) {
+                int tile = layout.consumables[i];
+                if ((board.tileAt(tile) & Board.ITEM_MASK) != Board.EMPTY) {
+                    mask |= 1 << i;
+                    if (layout.scoring[i] && distance[tile] <= stepsLeft) {
+                        reachable++;
+                    }
+                }
+            }
+
+            // Every item costs at least one step, and level 2 items first
+            // need the ladder to be reached
+            int level2 = 0;
+            if (engine.currentLevel == 1 && ladderDistance <= stepsLeft) {
+                level2 = Math.min(level2ScoringItems, stepsLeft - ladderDistance);
+            }
+            int bound = engine.player.getScore() + 2 * Math.min(reachable + level2, stepsLeft);
+            if (bound <= bestScore.get()) {
+                return;
+            }
+
+            long a = (long) engine.currentLevel << 40
+                    | (long) engine.player.getX() << 32
+                    | (long) engine.player.getY() << 24
+                    | mask;
+            long b = engine.getRandomState() << 16 | layout.id;
+            if (!table.offer(a, b, engine.player.getScore(), engine.steps, engine.player.getHp())) {
+                return;
+            }
+
+            forEachMove(depth, layout, nextLayout -> search(depth + 1, nextLayout));
+        }
+
+        // Tries every move that changes the state, restoring the engine after
+        // each one. Needs scan() to have run for the current state.
+        private void forEachMove(int depth, Layout layout, Consumer<Layout> next) {
+            ByteBuffer buffer = saved[depth];
+            buffer.clear();
+            GameSnapshot.write(engine, buffer);
+
+            int first = preferredMove;
+            for (int k = 0; k < DIRECTIONS.length; k++) {
+                Direction d = DIRECTIONS[(first + k) & 3];
+                int level = engine.currentLevel;
+                if (!engine.movePlayer(d)) {
+                    continue; // blocked, nothing changed
+                }
+                path[depth] = (byte) d.ordinal();
+                next.accept(engine.currentLevel != level ? layoutOf(engine.map) : layout);
+                buffer.flip();
+                restore(buffer);
+            }
+        }
+
+        // Breadth-first search from the player over all non-wall tiles. Fills
+        // in the distance to every tile, the distance to the ladder and the
+        // first move towards the nearest scoring item (or the ladder).
+        private void scan() {
+            Arrays.fill(distance, Integer.MAX_VALUE);
+            ladderDistance = Integer.MAX_VALUE;
+            preferredMove = -1;
+            int ladderMove = 0;
+
+            Board board = engine.map;
+            int px = engine.player.getX(), py = engine.player.getY();
+            int head = 0, tail = 0;
+            for (Direction d : DIRECTIONS) {
+                int nx = px + d.getDx(), ny = py + d.getDy();
+                if (board.inBounds(nx, ny) && !board.isWall(nx, ny) && distance[nx * size + ny] == Integer.MAX_VALUE) {
+                    distance[nx * size + ny] = 1;
+                    firstMove[nx * size + ny] = (byte) d.ordinal();
+                    queue[tail++] = nx * size + ny;
+                }
+            }
+
+            while (head < tail) {
+                int i = queue[head++];
+                byte code = board.getItemCode(i / size, i % size);
+                if (code == Board.LADDER && ladderDistance == Integer.MAX_VALUE) {
+                    ladderDistance = distance[i];
+                    ladderMove = firstMove[i];
+                } else if (preferredMove < 0 && (code == Board.GOLD
+                        || code == Board.MELEE_MUTANT || code == Board.RANGED_MUTANT)) {
+                    preferredMove = firstMove[i];
+                }
+
+                int x = i / size, y = i % size;
+                for (Direction d : DIRECTIONS) {
+                    int nx = x + d.getDx(), ny = y + d.getDy();
+                    if (board.inBounds(nx, ny) && !board.isWall(nx, ny) && distance[nx * size + ny] == Integer.MAX_VALUE) {
+                        distance[nx * size + ny] = distance[i] + 1;
+                        firstMove[nx * size + ny] = firstMove[i];
+                        queue[tail++] = nx * size + ny;
+                    }
+                }
+            }
+            if (preferredMove < 0) {
+                preferredMove = ladderMove;
+            }
+        }
+
+        private void restore(ByteBuffer buffer) {
+            try {
+                GameSnapshot.readInto(buffer, engine);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Usage: Solver difficulty seed [size]
+    public static void main(String[] args) {
+        int difficulty = Integer.parseInt(args[0]);
+        long seed = Long.parseLong(args[1]);
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : GameEngine.DEFAULT_SIZE;
+
+        long start = System.nanoTime();
+        Solution solution = new Solver(difficulty, size, seed).solve();
+        System.out.printf("Best score %d (%s, %s) in %d moves, %d nodes, %.2f s%n", solution.getScore(),
+                solution.getOutcome(), solution.isExact() ? "optimal" : "node limit hit",
+                solution.getMoves().length, solution.getNodes(), (System.nanoTime() - start) / 1e9);
+    }
+}
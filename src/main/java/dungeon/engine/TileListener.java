@@ -0,0 +1,7 @@
+package dungeon.engine;
+
+// Notified whenever a tile of a Board changes (wall or item)
+@FunctionalInterface
+public interface TileListener {
+    void tileChanged(int x, int y);
+}
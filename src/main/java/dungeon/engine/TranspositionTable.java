@@ -0,0 +1,122 @@
+package dungeon.engine;
+import java.util.Arrays;
+
+// Concurrent hash table from a search state packed into two longs to the
+// best (score, steps, hp) it has been reached with. Entries live in flat
+// primitive arrays, 20 bytes each, split into independently locked stripes
+// so threads rarely contend. Once full the table stops taking new states,
+// which only weakens pruning.
+class TranspositionTable {
+    private static final int STRIPES = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    TranspositionTable(int maxEntries) {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(Math.max(1024, maxEntries / STRIPES));
+        }
+    }
+
+    // Records that state (a, b) was reached with the given score, steps used
+    // and hp. Returns false if it was already reached with at least that
+    // score, no more steps and at least that hp: searching on from here
+    // cannot do any better.
+    boolean offer(long a, long b, int score, int steps, int hp) {
+        long hash = mix(a * 0x9E3779B97F4A7C15L ^ b);
+        int value = score << 16 | (255 - steps) << 8 | hp;
+        return stripes[(int) (hash >>> 58)].offer(a, b, value, (int) hash);
+    }
+
+    // True if every part of the stored value is at least as good
+    private static boolean dominates(int stored, int value) {
+        return (stored >>> 16) >= (value >>> 16)
+                && ((stored >>> 8) & 0xFF) >= ((value >>> 8) & 0xFF)
+                && (stored & 0xFF) >= (value & 0xFF);
+    }
+
+    // Forgets every state, keeping the arrays for the next search
+    void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Arrays.fill(stripe.values, 0);
+                stripe.count = 0;
+            }
+        }
+    }
+
+    long size() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.count;
+            }
+        }
+        return total;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static final class Stripe {
+        private final int maxEntries;
+        private long[] keysA = new long[1024];
+        private long[] keysB = new long[1024];
+        private int[] values = new int[1024]; // value + 1, 0 marks an empty slot
+        private int count;
+
+        Stripe(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        synchronized boolean offer(long a, long b, int value, int hash) {
+            int mask = values.length - 1;
+            int i = hash & mask;
+            while (values[i] != 0) {
+                if (keysA[i] == a && keysB[i] == b) {
+                    if (dominates(values[i] - 1, value)) {
+                        return false;
+                    }
+                    values[i] = value + 1;
+                    return true;
+                }
+                i = (i + 1) & mask;
+            }
+
+            if (count * 2 >= values.length) {
+                if (count >= maxEntries) {
+                    return true; // full, keep searching without recording
+                }
+                grow();
+                return offer(a, b, value, hash);
+            }
+            keysA[i] = a;
+            keysB[i] = b;
+            values[i] = value + 1;
+            count++;
+            return true;
+        }
+
+        private void grow() {
+            long[] oldA = keysA, oldB = keysB;
+            int[] oldValues = values;
+            keysA = new long[oldA.length * 2];
+            keysB = new long[oldB.length * 2];
+            values = new int[oldValues.length * 2];
+            int mask = values.length - 1;
+            for (int j = 0; j < oldValues.length; j++) {
+                if (oldValues[j] != 0) {
+                    int i = (int) mix(oldA[j] * 0x9E3779B97F4A7C15L ^ oldB[j]) & mask;
+                    while (values[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    keysA[i] = oldA[j];
+                    keysB[i] = oldB[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+    }
+}
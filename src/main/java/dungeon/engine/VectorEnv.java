@@ -0,0 +1,194 @@
+package dungeon.engine;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// Many headless games stepped in lockstep, for training agents. Each game is
+// a normal GameEngine, so the rules are exactly those of movePlayer and the
+// items; the observations are kept in struct-of-arrays buffers that are
+// updated in place:
+//   tiles   one byte per tile, game-major (game * size * size + x * size + y),
+//           same encoding as Board.getTile
+//   hp, score, steps, x, y, level   one int per game
+//   rewards score gained by the last step, dones 1 if the last step ended
+//           the game (the game has then already been reset)
+// The buffers are allocated once and overwritten by every step. Each slot
+// keeps its engine for good and a finished game is reset in place, so steps
+// allocate nothing except when a game reaches a new level.
+// Games are split into chunks stepped in parallel on the common pool.
+public class VectorEnv {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int envs;
+    private final int difficulty;
+    private final int size;
+    private final int area;
+    private final GameEngine[] engines;
+    private final SplittableRandom[] seedSources;
+    private final long[] seeds;
+
+    private final byte[] tiles;
+    private final ByteBuffer tileBuffer;
+    private final int[] hp, score, steps, x, y, level, rewards, dones;
+
+    private final Chunk[] chunks;
+    private final RecursiveAction root;
+    private int[] actions;
+
+    public VectorEnv(int envs, int difficulty, int size, long seed) {
+        this.envs = envs;
+        this.difficulty = difficulty;
+        this.size = Math.max(GameEngine.MIN_SIZE, size);
+        this.area = this.size * this.size;
+        if (envs < 1 || (long) envs * area > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Can't fit " + envs + " games of size " + this.size + " in one tile buffer");
+        }
+        this.engines = new GameEngine[envs];
+        this.seedSources = new SplittableRandom[envs];
+        this.seeds = new long[envs];
+        this.tiles = new byte[envs * area];
+        this.tileBuffer = ByteBuffer.wrap(tiles);
+        this.hp = new int[envs];
+        this.score = new int[envs];
+        this.steps = new int[envs];
+        this.x = new int[envs];
+        this.y = new int[envs];
+        this.level = new int[envs];
+        this.rewards = new int[envs];
+        this.dones = new int[envs];
+
+        // Each game draws its seeds from its own stream, so results don't
+        // depend on how the games are split between threads
+        SplittableRandom root = new SplittableRandom(seed);
+        for (int i = 0; i < envs; i++) {
+            seedSources[i] = root.split();
+        }
+
+        int chunkCount = Math.max(1, Math.min(envs, ForkJoinPool.getCommonPoolParallelism() * 4));
+        this.chunks = new Chunk[chunkCount];
+        for (int c = 0; c < chunkCount; c++) {
+            chunks[c] = new Chunk((int) ((long) envs * c / chunkCount), (int) ((long) envs * (c + 1) / chunkCount));
+        }
+        this.root = new RecursiveAction() {
+            @Override
+            protected void compute() {
+                for (Chunk chunk : chunks) {
+                    chunk.reinitialize();
+                }
+                ForkJoinTask.invokeAll(chunks);
+            }
+        };
+
+        for (int i = 0; i < envs; i++) {
+            seeds[i] = seedSources[i].nextLong();
+            GameEngine engine = new GameEngine(difficulty, this.size, seeds[i]);
+            engine.setMessageRetention(1);
+            int base = i * area;
+            engine.setTileListener((tx, ty) -> tiles[base + tx * this.size + ty] = engine.map.getTile(tx, ty));
+            engines[i] = engine;
+            engine.map.copyTiles(tiles, base);
+            observe(i);
+        }
+    }
+
+    // Applies one action (a Direction ordinal, 0 to 3) to every game
+    public void step(int[] actions) {
+        if (actions.length != envs) {
+            throw new IllegalArgumentException("Expected " + envs + " actions but got " + actions.length);
+        }
+        for (int i = 0; i < envs; i++) {
+            if (actions[i] < 0 || actions[i] >= DIRECTIONS.length) {
+                throw new IllegalArgumentException("Invalid action " + actions[i] + " for game " + i);
+            }
+        }
+        this.actions = actions;
+        if (chunks.length == 1) {
+            chunks[0].run(); // no point handing a single chunk to the pool
+        } else {
+            root.reinitialize();
+            ForkJoinPool.commonPool().invoke(root);
+        }
+    }
+
+    private void step(int i) {
+        GameEngine engine = engines[i];
+        int before = engine.player.getScore();
+        int currentLevel = engine.currentLevel;
+
+        engine.movePlayer(DIRECTIONS[actions[i]]);
+        rewards[i] = engine.player.getScore() - before;
+
+        if (engine.gameState != GameState.PLAYING) {
+            dones[i] = 1;
+            reset(i);
+            return;
+        }
+        dones[i] = 0;
+        if (engine.currentLevel != currentLevel) {
+            engine.map.copyTiles(tiles, i * area);
+        }
+        observe(i);
+    }
+
+    // Starts a new game in slot i with the next seed of its stream
+    private void reset(int i) {
+        seeds[i] = seedSources[i].nextLong();
+        GameEngine engine = engines[i];
+        engine.reset(seeds[i]);
+        engine.map.copyTiles(tiles, i * area);
+        observe(i);
+    }
+
+    private void observe(int i) {
+        GameEngine engine = engines[i];
+        hp[i] = engine.player.getHp();
+        score[i] = engine.player.getScore();
+        steps[i] = engine.steps;
+        x[i] = engine.player.getX();
+        y[i] = engine.player.getY();
+        level[i] = engine.currentLevel;
+    }
+
+    public int getEnvCount() { return envs; }
+    public int getSize() { return size; }
+
+    // Live observation buffers, overwritten by every step
+    public ByteBuffer getTiles() { return tileBuffer; }
+    public int[] getHp() { return hp; }
+    public int[] getScore() { return score; }
+    public int[] getSteps() { return steps; }
+    public int[] getX() { return x; }
+    public int[] getY() { return y; }
+    public int[] getLevel() { return level; }
+    public int[] getRewards() { return rewards; }
+    public int[] getDones() { return dones; }
+
+    // Seed of the game currently running in a slot
+    public long getSeed(int i) { return seeds[i]; }
+
+    // Engine currently running in a slot, e.g. to render it
+    public GameEngine getEngine(int i) { return engines[i]; }
+
+    // Games from..to-1, stepped on one thread
+    private final class Chunk extends RecursiveAction {
+        private final int from, to;
+
+        Chunk(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        void run() {
+            for (int i = from; i < to; i++) {
+                step(i);
+            }
+        }
+
+        @Override
+        protected void compute() {
+            run();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package dungeon.gui;
+import dungeon.engine.Board;
+import dungeon.engine.FogOfWar;
+import dungeon.engine.GameEngine;
+import javafx.animation.AnimationTimer;
+import javafx.geometry.VPos;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+// Renderer for large boards. Instead of one node per tile, the visible part
+// of the board is drawn onto a single Canvas from a sprite atlas built once
+// at startup. Drag to scroll, mouse wheel to zoom. The canvas is redrawn on
+// the next frame only after something has changed.
+public class BoardCanvas extends Pane {
+    private static final int SPRITE = 32; // sprite size in the atlas, in pixels
+
+    // Atlas layout: item codes 0-7 (0 is bare floor), then wall and player
+    private static final int WALL_SPRITE = 8;
+    private static final int PLAYER_SPRITE = 9;
+    private static final int SPRITE_COUNT = 10;
+
+    private static final double MIN_ZOOM = 0.125;
+    private static final double MAX_ZOOM = 4;
+
+    // Shade over explored tiles that are out of sight
+    private static final Color FOG = Color.rgb(0, 0, 0, 0.45);
+
+    private final GameEngine engine;
+    private final Canvas canvas;
+    private final Image atlas;
+
+    private double zoom = 1;       // screen pixels per sprite pixel
+    private double viewX, viewY;   // screen offset of the board's top-left corner
+    private double dragX, dragY;
+    private boolean dirty = true;
+
+    public BoardCanvas(GameEngine engine) {
+        this.engine = engine;
+        this.canvas = new Canvas();
+        this.atlas = buildAtlas();
+
+        canvas.setManaged(false);
+        getChildren().add(canvas);
+
+        setOnMousePressed(this::startDrag);
+        setOnMouseDragged(this::drag);
+        setOnScroll(this::zoom);
+
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (dirty) {
+                    dirty = false;
+                    draw();
+                }
+            }
+        }.start();
+    }
+
+    // Redraw on the next frame
+    public void markDirty() {
+        dirty = true;
+    }
+
+    // Redraw on the next frame if the tile is on screen
+    public void markTileDirty(int x, int y) {
+        double ts = SPRITE * zoom;
+        double sx = viewX + y * ts;
+        double sy = viewY + x * ts;
+        if (sx + ts > 0 && sx < getWidth() && sy + ts > 0 && sy < getHeight()) {
+            dirty = true;
+        }
+    }
+
+    // Scrolls so the player is in the middle of the view
+    public void centerOnPlayer() {
+        double ts = SPRITE * zoom;
+        viewX = getWidth() / 2 - (engine.getPlayerY() + 0.5) * ts;
+        viewY = getHeight() / 2 - (engine.getPlayerX() + 0.5) * ts;
+        dirty = true;
+    }
+
+    // Re-centres on the player once they get close to the edge of the view
+    public void followPlayer() {
+        double ts = SPRITE * zoom;
+        double px = viewX + engine.getPlayerY() * ts;
+        double py = viewY + engine.getPlayerX() * ts;
+        double margin = 2 * ts;
+        if (px < margin || py < margin || px + ts > getWidth() - margin || py + ts > getHeight() - margin) {
+            centerOnPlayer();
+        } else {
+            dirty = true;
+        }
+    }
+
+    @Override
+    protected void layoutChildren() {
+        if (canvas.getWidth() != getWidth() || canvas.getHeight() != getHeight()) {
+            canvas.setWidth(getWidth());
+            canvas.setHeight(getHeight());
+            dirty = true;
+        }
+    }
+
+    private void startDrag(MouseEvent event) {
+        dragX = event.getX();
+        dragY = event.getY();
+    }
+
+    private void drag(MouseEvent event) {
+        viewX += event.getX() - dragX;
+        viewY += event.getY() - dragY;
+        startDrag(event);
+        dirty = true;
+    }
+
+    private void zoom(ScrollEvent event) {
+        double factor = event.getDeltaY() > 0 ? 1.25 : 1 / 1.25;
+        double newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * factor));
+
+        // Keep the point under the mouse in place
+        double scale = newZoom / zoom;
+        viewX = event.getX() - (event.getX() - viewX) * scale;
+        viewY = event.getY() - (event.getY() - viewY) * scale;
+        zoom = newZoom;
+        dirty = true;
+    }
+
+    private void draw() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        gc.setFill(Color.DIMGRAY);
+        gc.fillRect(0, 0, width, height);
+
+        Board board = engine.getBoard();
+        int size = board.getSize();
+        double ts = SPRITE * zoom;
+
+        // Only visit the tiles inside the viewport (rows are x, columns are y)
+        int firstRow = Math.max(0, (int) Math.floor(-viewY / ts));
+        int lastRow = Math.min(size - 1, (int) Math.floor((height - viewY) / ts));
+        int firstCol = Math.max(0, (int) Math.floor(-viewX / ts));
+        int lastCol = Math.min(size - 1, (int) Math.floor((width - viewX) / ts));
+
+        // With fog of war, unexplored tiles are left as background and
+        // explored ones out of sight show only walls and floor, shaded
+        FogOfWar fog = engine.getFogOfWar();
+        gc.setFill(FOG);
+        for (int x = firstRow; x <= lastRow; x++) {
+            double sy = viewY + x * ts;
+            for (int y = firstCol; y <= lastCol; y++) {
+                if (fog != null && !fog.isExplored(x, y)) {
+                    continue;
+                }
+                byte tile = board.getTile(x, y);
+                boolean wall = (tile & Board.WALL) != 0;
+                if (fog == null || fog.isVisible(x, y)) {
+                    drawSprite(gc, wall ? WALL_SPRITE : tile & Board.ITEM_MASK, viewX + y * ts, sy, ts);
+                } else {
+                    drawSprite(gc, wall ? WALL_SPRITE : Board.EMPTY, viewX + y * ts, sy, ts);
+                    gc.fillRect(viewX + y * ts, sy, ts, ts);
+                }
+            }
+        }
+
+        drawSprite(gc, PLAYER_SPRITE, viewX + engine.getPlayerY() * ts, viewY + engine.getPlayerX() * ts, ts);
+    }
+
+    private void drawSprite(GraphicsContext gc, int sprite, double x, double y, double ts) {
+        gc.drawImage(atlas, sprite * SPRITE, 0, SPRITE, SPRITE, x, y, ts, ts);
+    }
+
+    // Draws every sprite once into a single image
+    private static Image buildAtlas() {
+        Canvas sheet = new Canvas(SPRITE * SPRITE_COUNT, SPRITE);
+        GraphicsContext gc = sheet.getGraphicsContext2D();
+        gc.setFont(Font.font(SPRITE * 0.6));
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.CENTER);
+
+        Image trapIcon = new Image("trap_icon.png", SPRITE, SPRITE, true, true);
+
+        for (int i = 0; i < SPRITE_COUNT; i++) {
+            double x = i * SPRITE;
+            if (i == WALL_SPRITE) {
+                gc.setFill(Color.BLACK);
+                gc.fillRect(x, 0, SPRITE, SPRITE);
+                drawLetter(gc, "#", x, Color.WHITE);
+                continue;
+            }
+
+            // Floor under every other sprite
+            gc.setFill(Color.WHITE);
+            gc.fillRect(x, 0, SPRITE, SPRITE);
+            gc.setStroke(Color.LIGHTGRAY);
+            gc.strokeRect(x + 0.5, 0.5, SPRITE - 1, SPRITE - 1);
+
+            if (i == PLAYER_SPRITE) {
+                gc.setFill(Color.LIGHTBLUE);
+                gc.fillOval(x + 3, 3, SPRITE - 6, SPRITE - 6);
+                drawLetter(gc, "P", x, Color.BLUE);
+            } else if (i == Board.TRAP && !trapIcon.isError()) {
+                gc.drawImage(trapIcon, x, 0, SPRITE, SPRITE);
+            } else if (i != Board.EMPTY) {
+                drawLetter(gc, Board.symbolFor((byte) i), x, Color.BLACK);
+            }
+        }
+
+        SnapshotParameters params = new SnapshotParameters();
+        params.setFill(Color.TRANSPARENT);
+        return sheet.snapshot(params, null);
+    }
+
+    private static void drawLetter(GraphicsContext gc, String letter, double x, Color color) {
+        gc.setFill(color);
+        gc.fillText(letter, x + SPRITE / 2.0, SPRITE / 2.0);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Cell.java
+ * Author: Max Faulks
+ * 30 / 05 / 25
+ * Portions of this script were generated or assisted by OpenAI's ChatGPT.
+*/
+package dungeon.gui;
+import dungeon.engine.Board;
+import dungeon.engine.FogOfWar;
+import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.text.Text;
+
+// View of a single board tile. The tile data lives in the engine's Board;
+// the background and text nodes are created once and only updated.
+public class Cell extends StackPane {
+    private final int x, y;
+    private final Rectangle bg;
+    private final Text text;
+    private Board board;
+    private FogOfWar fog;
+    private boolean hasPlayer;
+
+    public Cell(Board board, int x, int y) {
+        this.board = board;
+        this.x = x;
+        this.y = y;
+        this.bg = new Rectangle(40, 40);
+        this.text = new Text();
+        getChildren().addAll(bg, text);
+        updateDisplay();
+    }
+
+    // Binds the cell to the board of a new level
+    public void setBoard(Board board) {
+        this.board = board;
+        updateDisplay();
+    }
+
+    // Hides the tile until explored, and its item while out of sight
+    public void setFog(FogOfWar fog) {
+        this.fog = fog;
+        updateDisplay();
+    }
+
+    public void setPlayer(boolean hasPlayer) {
+        this.hasPlayer = hasPlayer;
+        updateDisplay();
+    }
+
+    public void updateDisplay() {
+        if (fog != null && !hasPlayer && !fog.isExplored(x, y)) {
+            bg.setFill(Color.DIMGRAY);
+            bg.setStroke(null);
+            text.setText("");
+        } else if (fog != null && !hasPlayer && !fog.isVisible(x, y)) {
+            boolean wall = board.isWall(x, y);
+            bg.setFill(wall ? Color.BLACK : Color.LIGHTGRAY);
+            bg.setStroke(wall ? null : Color.BLACK);
+            text.setText(wall ? "#" : "");
+            text.setFill(Color.GRAY);
+        } else if (board.isWall(x, y)) {
+            bg.setFill(Color.BLACK);
+            bg.setStroke(null);
+            text.setText(hasPlayer ? "P" : "#");
+            text.setFill(Color.WHITE);
+        } else {
+            bg.setFill(Color.WHITE);
+            bg.setStroke(Color.BLACK);
+            String symbol = hasPlayer ? "P" : board.getSymbol(x, y);
+            text.setText(symbol == null ? "" : symbol);
+            text.setFill(hasPlayer ? Color.BLUE : Color.BLACK);
+        }
+    }
+}
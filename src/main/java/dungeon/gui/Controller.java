@@ -1,35 +1,137 @@
 package dungeon.gui;
 
-import dungeon.engine.Cell;
+import dungeon.engine.Board;
+import dungeon.engine.Direction;
 import dungeon.engine.GameEngine;
+import dungeon.engine.GameEvent;
+import dungeon.engine.GameState;
+import dungeon.engine.LevelPool;
 import javafx.fxml.FXML;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
 
 public class Controller {
+    // Boards larger than this are drawn on a canvas instead of one Cell per tile
+    private static final int MAX_GRID_SIZE = 30;
+
+    // Builds level 2 while level 1 is played, so taking the ladder doesn't stall the UI
+    private static final LevelPool LEVEL_POOL = new LevelPool();
+
+    @FXML
+    private BorderPane root;
+
     @FXML
     private GridPane gridPane;
 
     GameEngine engine;
 
+    // One view per tile, created once and updated in place
+    private Cell[][] cells;
+    private int playerX, playerY;
+
+    // Used instead of cells on large boards
+    private BoardCanvas boardCanvas;
+
     @FXML
     public void initialize() {
-        engine = new GameEngine(10);
+        // Map size can be set with -Ddungeon.size=N
+        engine = new GameEngine(10, Integer.getInteger("dungeon.size", GameEngine.DEFAULT_SIZE));
+        engine.setLevelPool(LEVEL_POOL);
+        // -Ddungeon.chase=N makes mutants within N tiles chase the player
+        engine.setMutantMovement(Integer.getInteger("dungeon.chase", 0));
+        // -Ddungeon.fog=N only shows what the player can see within N tiles
+        engine.setFogOfWar(Integer.getInteger("dungeon.fog", 0));
+
+        if (engine.getSize() > MAX_GRID_SIZE) {
+            initializeCanvas();
+        } else {
+            initializeGrid();
+        }
+    }
+
+    private void initializeGrid() {
+        buildGrid();
+
+        // Redraw only the tiles that change: tiles reported by the board, the
+        // player's old and new tile after a move, and everything on a new level
+        engine.setTileListener((x, y) -> cells[x][y].updateDisplay());
+        engine.addListener((event, a, b) -> {
+            if (event == GameEvent.MOVED) {
+                movePlayerMarker();
+            } else if (event == GameEvent.LEVEL_STARTED) {
+                rebindBoard();
+            }
+        });
+    }
 
-        updateGui();
+    private void initializeCanvas() {
+        boardCanvas = new BoardCanvas(engine);
+        root.setCenter(boardCanvas);
+        boardCanvas.layoutBoundsProperty().addListener((obs, oldBounds, newBounds) -> boardCanvas.centerOnPlayer());
+
+        engine.setTileListener(boardCanvas::markTileDirty);
+        engine.addListener((event, a, b) -> {
+            if (event == GameEvent.MOVED) {
+                boardCanvas.followPlayer();
+            } else if (event == GameEvent.LEVEL_STARTED) {
+                boardCanvas.centerOnPlayer();
+            }
+        });
     }
 
-    private void updateGui() {
-        //Clear old GUI grid pane
-        gridPane.getChildren().clear();
+    private void buildGrid() {
+        Board board = engine.getBoard();
+        cells = new Cell[engine.getSize()][engine.getSize()];
 
-        //Loop through map board and add each cell into grid pane
+        //Loop through map board and add a cell view for each tile into grid pane
         for(int i = 0; i < engine.getSize(); i++) {
             for (int j = 0; j < engine.getSize(); j++) {
-                Cell cell = engine.getMap()[i][j];
+                Cell cell = new Cell(board, i, j);
+                cell.setFog(engine.getFogOfWar());
+                cells[i][j] = cell;
                 gridPane.add(cell, j, i);
             }
         }
         gridPane.setGridLinesVisible(true);
+
+        playerX = engine.getPlayerX();
+        playerY = engine.getPlayerY();
+        cells[playerX][playerY].setPlayer(true);
+    }
+
+    private void movePlayerMarker() {
+        cells[playerX][playerY].setPlayer(false);
+        playerX = engine.getPlayerX();
+        playerY = engine.getPlayerY();
+        cells[playerX][playerY].setPlayer(true);
+    }
+
+    private void rebindBoard() {
+        Board board = engine.getBoard();
+        cells[playerX][playerY].setPlayer(false);
+        for (Cell[] row : cells) {
+            for (Cell cell : row) {
+                cell.setBoard(board);
+            }
+        }
+        playerX = engine.getPlayerX();
+        playerY = engine.getPlayerY();
+        cells[playerX][playerY].setPlayer(true);
+    }
+
+    // Arrow keys or WASD move the player
+    public void handleKey(KeyEvent event) {
+        if (engine.getGameState() != GameState.PLAYING) {
+            return;
+        }
+        switch (event.getCode()) {
+            case UP, W -> engine.movePlayer(Direction.UP);
+            case DOWN, S -> engine.movePlayer(Direction.DOWN);
+            case LEFT, A -> engine.movePlayer(Direction.LEFT);
+            case RIGHT, D -> engine.movePlayer(Direction.RIGHT);
+            default -> { }
+        }
     }
 
 }
@@ -1,6 +1,5 @@
 package dungeon.gui;
 
-import dungeon.engine.GameEngine;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -17,9 +16,13 @@ public class GameGUI extends Application {
 
     @Override
     public void start(Stage primaryStage) throws Exception {
-        BorderPane root = FXMLLoader.load(getClass().getResource("game_gui.fxml"));
+        FXMLLoader loader = new FXMLLoader(getClass().getResource("game_gui.fxml"));
+        BorderPane root = loader.load();
+        Controller controller = loader.getController();
 
-        primaryStage.setScene(new Scene(root, 800, 800));
+        Scene scene = new Scene(root, 800, 800);
+        scene.setOnKeyPressed(controller::handleKey);
+        primaryStage.setScene(scene);
         primaryStage.setTitle("MiniDungeon Game");
         primaryStage.show();
     }
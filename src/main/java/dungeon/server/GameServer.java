@@ -0,0 +1,172 @@
+package dungeon.server;
+import dungeon.engine.EngineMetrics;
+import dungeon.engine.LatencyHistogram;
+import dungeon.engine.Leaderboard;
+import dungeon.engine.LevelPool;
+import dungeon.engine.MetricsExporter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Hosts many independent games over a line-based text protocol on a local
+// socket. Every connection gets its own session and virtual thread; the
+// thread is the only one touching that session's engine, so there is no
+// global lock on the move path.
+//
+// Commands (one per line):
+//   NEW [difficulty] [seed]  start a game           -> OK <session> <seed>, STATE ...
+//   MOVE u|d|l|r             move the player        -> MSG ... lines, STATE ...
+//   MOVES <u|d|l|r>...       several moves, e.g. uur -> MSG ... lines, BATCH ..., STATE ...
+//   STATS                    server statistics      -> STATS ...
+//   NAME <name>              name on the leaderboard -> OK
+//   TOP [difficulty] [n]     best n scores (10)     -> ENTRY <rank> <score> <name> lines, END
+//   QUIT                     close the connection   -> BYE
+// With a leaderboard, a move that ends the game is followed by
+// RANK <difficulty> <rank> <count> once the result is recorded.
+public class GameServer implements AutoCloseable {
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextSessionId = new AtomicLong(1);
+    private final AtomicLong peakSessions = new AtomicLong();
+    private final LongAdder moves = new LongAdder();
+    private final LatencyHistogram moveLatency = new LatencyHistogram();
+
+    // Shared by every session's engine
+    private final EngineMetrics engineMetrics = new EngineMetrics();
+
+    // Builds every session's next level in the background
+    private final LevelPool levelPool = new LevelPool(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+    private volatile Leaderboard leaderboard;
+
+    // Binds to the loopback address. Port 0 picks a free port.
+    public GameServer(int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+    }
+
+    // Records finished games on the leaderboard, which is closed with the server
+    public void setLeaderboard(Leaderboard leaderboard) {
+        this.leaderboard = leaderboard;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    // Accepts connections in the background until closed
+    public void start() {
+        executor.submit(this::acceptLoop);
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.submit(() -> serve(socket));
+            } catch (SocketException e) {
+                return; // server closed
+            } catch (IOException e) {
+                System.err.println("Accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        GameSession session = new GameSession(nextSessionId.getAndIncrement(), this);
+        sessions.put(session.getId(), session);
+        peakSessions.accumulateAndGet(sessions.size(), Math::max);
+
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), false, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                boolean open;
+                try {
+                    open = session.handle(line, out);
+                } catch (NumberFormatException e) {
+                    out.println("ERR bad number " + e.getMessage());
+                    open = true;
+                }
+                out.flush();
+                if (!open) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // client went away
+        } finally {
+            sessions.remove(session.getId());
+        }
+    }
+
+    void recordMove(long nanos) {
+        moves.increment();
+        moveLatency.record(nanos);
+    }
+
+    // A MOVES batch counts all its moves but is timed as one request
+    void recordMoves(int count, long nanos) {
+        moves.add(count);
+        moveLatency.record(nanos);
+    }
+
+    public int getSessionCount() { return sessions.size(); }
+    public long getPeakSessions() { return peakSessions.get(); }
+    public long getMoveCount() { return moves.sum(); }
+    public LatencyHistogram getMoveLatency() { return moveLatency; }
+    public EngineMetrics getEngineMetrics() { return engineMetrics; }
+    LevelPool getLevelPool() { return levelPool; }
+    Leaderboard getLeaderboard() { return leaderboard; }
+
+    public String getStats() {
+        return "STATS sessions=" + getSessionCount()
+                + " peak=" + getPeakSessions()
+                + " moves=" + getMoveCount()
+                + " p50_ns=" + moveLatency.getPercentile(50)
+                + " p99_ns=" + moveLatency.getPercentile(99);
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+        levelPool.close();
+        if (leaderboard != null) {
+            leaderboard.close();
+        }
+    }
+
+    // Usage: GameServer [port]
+    // With -Ddungeon.metrics=<file>, engine metrics are appended to the file every 10 seconds
+    // With -Ddungeon.leaderboard=<file>, finished games are recorded in the file
+    public static void main(String[] args) throws IOException {
+        GameServer server = new GameServer(args.length > 0 ? Integer.parseInt(args[0]) : 7221);
+        String metricsFile = System.getProperty("dungeon.metrics");
+        if (metricsFile != null) {
+            new MetricsExporter(server.getEngineMetrics(), Path.of(metricsFile)).start(10, TimeUnit.SECONDS);
+        }
+        String leaderboardFile = System.getProperty("dungeon.leaderboard");
+        if (leaderboardFile != null) {
+            server.setLeaderboard(new Leaderboard(Path.of(leaderboardFile)));
+        }
+        System.out.println("MiniDungeon server listening on " + server.serverSocket.getLocalSocketAddress());
+        server.acceptLoop();
+    }
+}
@@ -0,0 +1,164 @@
+package dungeon.server;
+import dungeon.engine.Direction;
+import dungeon.engine.GameEngine;
+import dungeon.engine.GameState;
+import dungeon.engine.Leaderboard;
+import dungeon.engine.MoveBatchResult;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+
+// One player's game on the server. A session is only ever used by the thread
+// serving its connection, so the engine needs no locking.
+public class GameSession {
+    private final long id;
+    private final GameServer server;
+    private GameEngine engine;
+    private long messageCursor;
+    private String name;
+    private boolean recorded;
+
+    GameSession(long id, GameServer server) {
+        this.id = id;
+        this.server = server;
+        this.name = "Player" + id;
+    }
+
+    public long getId() { return id; }
+
+    // Handles one command line and writes the reply. Returns false once the client quits.
+    boolean handle(String line, PrintWriter out) {
+        String[] parts = line.trim().split("\\s+");
+        switch (parts[0].toUpperCase()) {
+            case "NEW" -> {
+                int difficulty = parts.length > 1 ? Integer.parseInt(parts[1]) : 3;
+                engine = parts.length > 2
+                        ? new GameEngine(difficulty, GameEngine.DEFAULT_SIZE, Long.parseLong(parts[2]))
+                        : new GameEngine(difficulty);
+                engine.setLevelPool(server.getLevelPool());
+                engine.setMetrics(server.getEngineMetrics());
+                messageCursor = engine.getMessageLog().getSequence();
+                recorded = false;
+                out.println("OK " + id + " " + engine.getSeed());
+                writeState(out);
+            }
+            case "MOVE" -> {
+                Direction direction = parts.length > 1 ? parseDirection(parts[1]) : null;
+                if (engine == null) {
+                    out.println("ERR no game, send NEW first");
+                } else if (direction == null) {
+                    out.println("ERR usage: MOVE u|d|l|r");
+                } else {
+                    long start = System.nanoTime();
+                    engine.movePlayer(direction);
+                    server.recordMove(System.nanoTime() - start);
+
+                    messageCursor = engine.getMessageLog().forEachSince(messageCursor,
+                            message -> out.println("MSG " + message));
+                    writeState(out);
+                    recordResult(out);
+                }
+            }
+            case "MOVES" -> {
+                Direction[] moves = parts.length > 1 ? parseDirections(parts[1]) : null;
+                if (engine == null) {
+                    out.println("ERR no game, send NEW first");
+                } else if (moves == null) {
+                    out.println("ERR usage: MOVES <u|d|l|r>...");
+                } else {
+                    long start = System.nanoTime();
+                    MoveBatchResult result = engine.movePlayer(moves);
+                    server.recordMoves(result.getPlayed(), System.nanoTime() - start);
+
+                    messageCursor = engine.getMessageLog().forEachSince(messageCursor,
+                            message -> out.println("MSG " + message));
+                    out.println("BATCH " + result);
+                    writeState(out);
+                    recordResult(out);
+                }
+            }
+            case "STATS" -> out.println(server.getStats());
+            case "NAME" -> {
+                String[] named = line.trim().split("\\s+", 2);
+                if (named.length < 2) {
+                    out.println("ERR usage: NAME <name>");
+                } else {
+                    name = named[1];
+                    out.println("OK");
+                }
+            }
+            case "TOP" -> {
+                Leaderboard leaderboard = server.getLeaderboard();
+                int difficulty = parts.length > 1 ? Integer.parseInt(parts[1]) : 3;
+                int count = parts.length > 2 ? Integer.parseInt(parts[2]) : 10;
+                if (leaderboard == null) {
+                    out.println("ERR no leaderboard");
+                } else if (difficulty < 0 || difficulty >= Leaderboard.DIFFICULTIES) {
+                    out.println("ERR difficulty must be 0-" + (Leaderboard.DIFFICULTIES - 1));
+                } else {
+                    List<Leaderboard.Entry> top = leaderboard.getTop(difficulty, count);
+                    int rank = 1;
+                    for (Leaderboard.Entry entry : top) {
+                        out.println("ENTRY " + rank++ + " " + entry);
+                    }
+                    out.println("END");
+                }
+            }
+            case "QUIT" -> {
+                out.println("BYE");
+                return false;
+            }
+            default -> out.println("ERR unknown command " + parts[0]);
+        }
+        return true;
+    }
+
+    // Puts a finished game on the leaderboard, once
+    private void recordResult(PrintWriter out) {
+        Leaderboard leaderboard = server.getLeaderboard();
+        if (leaderboard == null || recorded || engine.getGameState() == GameState.PLAYING) {
+            return;
+        }
+        recorded = true;
+        try {
+            Leaderboard.Entry entry = leaderboard.submit(name, engine);
+            int difficulty = entry.getDifficulty();
+            out.println("RANK " + difficulty + " " + leaderboard.getRank(difficulty, entry.getScore())
+                    + " " + leaderboard.getCount(difficulty));
+        } catch (IOException e) {
+            out.println("ERR could not record result: " + e.getMessage());
+        }
+    }
+
+    private void writeState(PrintWriter out) {
+        out.println("STATE " + engine.getGameState()
+                + " level=" + engine.getCurrentLevel()
+                + " hp=" + engine.getPlayerHp()
+                + " score=" + engine.getPlayerScore()
+                + " steps=" + engine.getSteps()
+                + " pos=" + engine.getPlayerX() + "," + engine.getPlayerY());
+    }
+
+    // Moves written as one letter each, e.g. "uurrd"
+    private static Direction[] parseDirections(String s) {
+        Direction[] moves = new Direction[s.length()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = parseDirection(s.substring(i, i + 1));
+            if (moves[i] == null) {
+                return null;
+            }
+        }
+        return moves;
+    }
+
+    private static Direction parseDirection(String s) {
+        return switch (s.toLowerCase()) {
+            case "u", "up" -> Direction.UP;
+            case "d", "down" -> Direction.DOWN;
+            case "l", "left" -> Direction.LEFT;
+            case "r", "right" -> Direction.RIGHT;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package dungeon.server;
+import dungeon.engine.LatencyHistogram;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Starts a server on loopback, connects many clients playing random moves at
+// once and reports sessions held and move latency (round trip and in-engine).
+public class LoadTest {
+    private static final String[] MOVES = {"u", "d", "l", "r"};
+
+    // Usage: LoadTest [clients] [moves per client]
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int movesPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        LatencyHistogram roundTrip = new LatencyHistogram();
+        long start = System.nanoTime();
+        try (GameServer server = new GameServer(0)) {
+            server.start();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int c = 0; c < clients; c++) {
+                    long seed = c;
+                    executor.submit(() -> play(server.getPort(), movesPerClient, new SplittableRandom(seed), roundTrip));
+                }
+            }
+            System.out.println(server.getStats());
+            System.out.printf("peak sessions %d, %d moves in %.2f s, round trip p50 %d us, p99 %d us%n",
+                    server.getPeakSessions(), server.getMoveCount(), (System.nanoTime() - start) / 1e9,
+                    roundTrip.getPercentile(50) / 1000, roundTrip.getPercentile(99) / 1000);
+        }
+    }
+
+    private static Void play(int port, int moves, SplittableRandom random, LatencyHistogram roundTrip) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            out.println("NEW " + random.nextInt(11));
+            String state = readState(in);
+            for (int i = 0; i < moves; i++) {
+                if (!state.startsWith("STATE PLAYING")) {
+                    out.println("NEW " + random.nextInt(11));
+                    state = readState(in);
+                }
+                long t = System.nanoTime();
+                out.println("MOVE " + MOVES[random.nextInt(4)]);
+                state = readState(in);
+                roundTrip.record(System.nanoTime() - t);
+            }
+            out.println("QUIT");
+        }
+        return null;
+    }
+
+    // Skips reply lines up to and including the STATE line
+    private static String readState(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.startsWith("STATE")) {
+                return line;
+            }
+        }
+        throw new IOException("Connection closed");
+    }
+}
@@ -0,0 +1,64 @@
+package dungeon.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestBatchSimulator {
+
+    @Test
+    void testEveryGameIsCounted() {
+        SimulationResult result = new BatchSimulator(MovePolicy.RANDOM).run(5, 1000, 1L);
+        assertEquals(1000, result.getGames());
+        assertEquals(1000, result.getWins() + result.getDeaths() + result.getOutOfSteps() + result.getStalled());
+        assertTrue(result.getDeaths() > 0);
+        assertEquals(result.getDeaths(), result.getDeaths(GameEvent.TRAP_TRIGGERED)
+                + result.getDeaths(GameEvent.MELEE_MUTANT_FOUGHT) + result.getDeaths(GameEvent.RANGED_MUTANT_HIT));
+
+        long histogramTotal = 0;
+        for (long count : result.getScoreHistogram()) {
+            histogramTotal += count;
+        }
+        assertEquals(1000, histogramTotal);
+    }
+
+    @Test
+    void testRunsAreReproducible() {
+        BatchSimulator simulator = new BatchSimulator(MovePolicy.RANDOM);
+        SimulationResult a = simulator.run(3, 500, 99L);
+        SimulationResult b = simulator.run(3, 500, 99L);
+        assertEquals(a.getWins(), b.getWins());
+        assertEquals(a.getMeanScore(), b.getMeanScore(), 0.0);
+        assertEquals(a.getMeanSteps(), b.getMeanSteps(), 0.0);
+    }
+
+    @Test
+    void testConsecutiveGamesAreIndependent() {
+        List<List<Direction>> moves = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            List<Direction> chosen = new ArrayList<>();
+            BatchSimulator simulator = new BatchSimulator((engine, random) -> {
+                Direction move = MovePolicy.RANDOM.chooseMove(engine, random);
+                chosen.add(move);
+                return move;
+            }, 20);
+            simulator.playGame(0, BatchSimulator.randomFor(7L, i));
+            moves.add(chosen.subList(0, 12));
+        }
+
+        for (int i = 0; i + 1 < moves.size(); i++) {
+            assertNotEquals(moves.get(i), moves.get(i + 1));
+            // Not the previous game's moves one draw later either
+            assertNotEquals(moves.get(i).subList(1, 12), moves.get(i + 1).subList(0, 11));
+        }
+    }
+
+    @Test
+    void testStuckPolicyStalls() {
+        SimulationResult result = new BatchSimulator((engine, random) -> Direction.DOWN).run(0, 10, 1L);
+        assertEquals(10, result.getStalled());
+    }
+}
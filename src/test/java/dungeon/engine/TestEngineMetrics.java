@@ -0,0 +1,125 @@
+package dungeon.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestEngineMetrics {
+
+    @Test
+    void testMovesAndInteractions() {
+        EngineMetrics metrics = new EngineMetrics();
+        GameEngine ge = new GameEngine(0, 10, 1L);
+        ge.setMetrics(metrics);
+        ge.getBoard().setItemCode(8, 1, Board.GOLD);
+
+        ge.movePlayer(Direction.UP);   // picks up the gold
+        ge.movePlayer(Direction.LEFT); // wall
+
+        assertEquals(1, metrics.getMoves());
+        assertEquals(1, metrics.getBlockedMoves());
+        assertEquals(2, metrics.getMoveLatency().getCount());
+        assertEquals(1, metrics.getInteractions(Board.GOLD));
+        assertEquals(1, metrics.getEvents(GameEvent.GOLD_PICKED_UP));
+        assertEquals(1, metrics.getEvents(GameEvent.HIT_WALL));
+    }
+
+    @Test
+    void testOutcomesByStartingDifficulty() {
+        EngineMetrics metrics = new EngineMetrics();
+        GameEngine ge = new GameEngine(4, 10, 2L);
+        ge.setMetrics(metrics);
+        ge.advanceLevel();
+        ge.advanceLevel(); // wins on level 2, where the difficulty is 6
+
+        assertEquals(2, metrics.getLevelLatency().getCount()); // level 1 counts too
+        assertEquals(1, metrics.getOutcomes(4, GameEvent.WON));
+        assertEquals(0, metrics.getOutcomes(6, GameEvent.WON));
+        assertEquals(1L, (long) metrics.snapshot().get("outcome.d4.won"));
+    }
+
+    @Test
+    void testLevelLatencyIncludesPooledBuilds() {
+        EngineMetrics metrics = new EngineMetrics();
+        try (LevelPool pool = new LevelPool()) {
+            GameEngine ge = new GameEngine(0, 10, 6L);
+            ge.setDungeonDepth(GameEngine.ENDLESS, 50);
+            ge.setLevelPool(pool);
+            ge.setMetrics(metrics);
+            ge.advanceLevel();
+            ge.advanceLevel();
+        }
+        LatencyHistogram levels = metrics.getLevelLatency();
+        assertEquals(3, levels.getCount());
+        assertTrue(levels.getPercentile(100) > 0);
+    }
+
+    @Test
+    void testExporterAppendsSnapshots() throws IOException {
+        EngineMetrics metrics = new EngineMetrics();
+        GameEngine ge = new GameEngine(0, 10, 3L);
+        ge.setMetrics(metrics);
+        ge.movePlayer(Direction.UP);
+
+        Path file = Files.createTempFile("dungeon", ".metrics");
+        try {
+            MetricsExporter exporter = new MetricsExporter(metrics, file);
+            exporter.export();
+            exporter.export();
+
+            List<String> lines = Files.readAllLines(file);
+            assertEquals(2, lines.size());
+            assertTrue(lines.get(0).contains(" moves=1 "));
+            assertTrue(lines.get(0).contains(" move.count=1 "));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testExporterKeepsRunningAfterFailure() throws Exception {
+        // A directory can't be appended to, so every export fails
+        Path dir = Files.createTempDirectory("dungeon");
+        try {
+            MetricsExporter exporter = new MetricsExporter(new EngineMetrics(), dir);
+            exporter.start(5, TimeUnit.MILLISECONDS);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (exporter.getFailures() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(exporter.getFailures() >= 3);
+            assertThrows(IOException.class, exporter::close);
+        } finally {
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    @Test
+    void testSharedBetweenThreads() throws InterruptedException {
+        EngineMetrics metrics = new EngineMetrics();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long seed = t;
+            threads[t] = new Thread(() -> {
+                GameEngine ge = new GameEngine(0, 10, seed);
+                ge.setMetrics(metrics);
+                for (int i = 0; i < 50; i++) {
+                    ge.movePlayer(i % 2 == 0 ? Direction.UP : Direction.DOWN);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Map<String, Long> snapshot = metrics.snapshot();
+        assertEquals(200L, (long) snapshot.get("move.count"));
+    }
+}
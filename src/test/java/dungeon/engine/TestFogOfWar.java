@@ -0,0 +1,136 @@
+package dungeon.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestFogOfWar {
+
+    @Test
+    void testOpenRoom() {
+        Board board = new Board(20);
+        FogOfWar fog = new FogOfWar(20, 3);
+        fog.update(board, 10, 10, null);
+
+        assertTrue(fog.isVisible(10, 10));
+        assertTrue(fog.isVisible(10, 13));
+        assertTrue(fog.isVisible(7, 10));
+        assertTrue(fog.isVisible(12, 12));
+        assertFalse(fog.isVisible(10, 14));
+        assertFalse(fog.isVisible(13, 13));
+
+        // Everything within the radius is in sight
+        for (int x = 7; x <= 13; x++) {
+            for (int y = 7; y <= 13; y++) {
+                int dx = x - 10, dy = y - 10;
+                if (dx * dx + dy * dy <= 9) {
+                    assertTrue(fog.isVisible(x, y), x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testWallsBlockSight() {
+        Board board = new Board(20);
+        for (int x = 0; x < 20; x++) {
+            board.setWall(x, 12, true);
+        }
+        board.setItemCode(10, 11, Board.GOLD); // items don't block
+        FogOfWar fog = new FogOfWar(20, 6);
+        fog.update(board, 10, 10, null);
+
+        assertTrue(fog.isVisible(10, 11));
+        assertTrue(fog.isVisible(10, 12)); // the wall itself
+        assertFalse(fog.isVisible(10, 13));
+        assertFalse(fog.isVisible(8, 14));
+        assertTrue(fog.isVisible(10, 4));
+    }
+
+    @Test
+    void testExploredIsRemembered() {
+        Board board = new Board(30);
+        FogOfWar fog = new FogOfWar(30, 4);
+        fog.update(board, 5, 5, null);
+        fog.update(board, 5, 20, null);
+
+        assertTrue(fog.isExplored(5, 5));
+        assertFalse(fog.isVisible(5, 5));
+        assertTrue(fog.isVisible(5, 20));
+        assertFalse(fog.isExplored(20, 20));
+
+        fog.reset();
+        assertFalse(fog.isExplored(5, 5));
+        assertEquals(0, fog.getVisibleCount());
+    }
+
+    @Test
+    void testIncrementalMatchesFresh() {
+        GameEngine ge = new GameEngine(3, 40, 9L);
+        ge.setFogOfWar(5);
+        Direction[] path = {Direction.UP, Direction.UP, Direction.RIGHT, Direction.RIGHT, Direction.UP,
+                Direction.RIGHT, Direction.DOWN, Direction.RIGHT, Direction.UP, Direction.UP};
+
+        for (Direction direction : path) {
+            ge.movePlayer(direction);
+            FogOfWar fresh = new FogOfWar(ge.getSize(), 5);
+            fresh.update(ge.getBoard(), ge.getPlayerX(), ge.getPlayerY(), null);
+            assertArrayEquals(fresh.getVisible(), ge.getFogOfWar().getVisible());
+
+            // Explored always covers what is visible now
+            long[] visible = ge.getFogOfWar().getVisible();
+            long[] explored = ge.getFogOfWar().getExplored();
+            for (int i = 0; i < visible.length; i++) {
+                assertEquals(visible[i], visible[i] & explored[i]);
+            }
+        }
+    }
+
+    @Test
+    void testListenerReportsChangedTiles() {
+        Board board = new Board(20);
+        board.setWall(6, 8, true);
+        FogOfWar fog = new FogOfWar(20, 4);
+        fog.update(board, 6, 6, null);
+        long[] before = fog.getVisible().clone();
+
+        Set<Integer> reported = new HashSet<>();
+        fog.update(board, 7, 6, (x, y) -> assertTrue(reported.add(x * 20 + y)));
+
+        Set<Integer> expected = new HashSet<>();
+        long[] after = fog.getVisible();
+        for (int i = 0; i < 400; i++) {
+            if (((before[i >> 6] ^ after[i >> 6]) & 1L << i) != 0) {
+                expected.add(i);
+            }
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, reported);
+    }
+
+    @Test
+    void testNewLevelAndSaveRoundTrip() throws Exception {
+        GameEngine ge = new GameEngine(3, 30, 4L);
+        ge.setFogOfWar(4);
+        ge.movePlayer(Direction.UP);
+        ge.movePlayer(Direction.RIGHT);
+        ge.movePlayer(Direction.RIGHT);
+
+        GameEngine copy = GameSnapshot.fromBytes(GameSnapshot.toBytes(ge));
+        assertEquals(4, copy.getFogOfWar().getRadius());
+        assertArrayEquals(ge.getFogOfWar().getExplored(), copy.getFogOfWar().getExplored());
+        assertArrayEquals(ge.getFogOfWar().getVisible(), copy.getFogOfWar().getVisible());
+
+        ge.advanceLevel();
+        FogOfWar fog = ge.getFogOfWar();
+        assertTrue(fog.isVisible(ge.getPlayerX(), ge.getPlayerY()));
+        assertArrayEquals(fog.getVisible(), fog.getExplored());
+
+        ge.setFogOfWar(0);
+        assertNull(ge.getFogOfWar());
+        assertNull(ge.fork().getFogOfWar());
+    }
+}
@@ -9,6 +9,10 @@ package dungeon.engine;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class TestGameEngine {
@@ -19,6 +23,35 @@ public class TestGameEngine {
         assertEquals(10, ge.getSize());
     }
 
+    @Test
+    void testConfigurableSize() {
+        GameEngine ge = new GameEngine(5, 1000);
+        assertEquals(1000, ge.getSize());
+        assertEquals(999, ge.getPlayer().getX());
+        assertTrue(ge.getBoard().isWall(999, 500));
+        assertTrue(ge.movePlayer(Direction.UP));
+    }
+
+    @Test
+    void testSizeLimit() {
+        // size * size must fit in an int, so 46341 is the first size too big
+        assertEquals(46340, GameEngine.MAX_SIZE);
+        assertThrows(IllegalArgumentException.class, () -> new GameEngine(0, GameEngine.MAX_SIZE + 1));
+        assertThrows(IllegalArgumentException.class, () -> new Board(Board.MAX_SIZE + 1));
+        assertThrows(IllegalArgumentException.class, () -> new Board(0));
+        assertEquals(GameEngine.MIN_SIZE, new GameEngine(0, 1).getSize()); // small sizes are still clamped
+    }
+
+    @Test
+    void testBoardHasPerimeterWalls() {
+        GameEngine ge = new GameEngine(5);
+        Board board = ge.getBoard();
+        assertTrue(board.isWall(0, 0));
+        assertTrue(board.isWall(9, 5));
+        assertTrue(board.isWall(5, 0));
+        assertFalse(board.isWall(5, 5));
+    }
+
     @Test
     void testInitialPlayerPosition() {
         GameEngine ge = new GameEngine(5);
@@ -50,7 +83,7 @@ public class TestGameEngine {
         GameEngine ge = new GameEngine(5);
 
         // Place gold manually at (8,1)
-        ge.getMap()[8][1].setItem(new dungeon.engine.Gold());
+        ge.getBoard().setItem(8, 1, dungeon.engine.Gold.INSTANCE);
 
         // Move player to (8,1)
         ge.movePlayer(Direction.UP);
@@ -65,7 +98,7 @@ public class TestGameEngine {
         player.takeDamage(4); // HP goes from 10 to 6
 
         // Place potion at (8,1)
-        ge.getMap()[8][1].setItem(new dungeon.engine.HealthPotion());
+        ge.getBoard().setItem(8, 1, dungeon.engine.HealthPotion.INSTANCE);
 
         ge.movePlayer(Direction.UP); // Pick up potion
         assertTrue(player.getHp() > 6);
@@ -78,19 +111,121 @@ public class TestGameEngine {
         int initialHp = player.getHp();
 
         // Place trap at (8,1)
-        ge.getMap()[8][1].setItem(new dungeon.engine.Trap());
+        ge.getBoard().setItem(8, 1, dungeon.engine.Trap.INSTANCE);
 
         ge.movePlayer(Direction.UP); // Step on trap
         assertEquals(initialHp - 2, player.getHp());
     }
 
+    @Test
+    void testRangedMutantAttacksOnlyInRange() {
+        GameEngine ge = new GameEngine(0);
+        ge.getBoard().setItem(8, 1, null);
+        ge.getBoard().setItem(6, 1, dungeon.engine.RangedMutant.INSTANCE); // 2 tiles above (8,1)
+        ge.getBoard().setItem(8, 4, dungeon.engine.RangedMutant.INSTANCE); // 3 tiles right of (8,1)
+
+        ge.movePlayer(Direction.UP);
+
+        long attacks = ge.getMessages().stream()
+                .filter(m -> m.startsWith("A ranged mutant attacked")).count();
+        assertEquals(1, attacks);
+    }
+
+    @Test
+    void testMeleeMutantIsConsumedButTrapRemains() {
+        GameEngine ge = new GameEngine(0);
+        ge.getBoard().setItem(8, 1, dungeon.engine.MeleeMutant.INSTANCE);
+        ge.getBoard().setItem(7, 1, dungeon.engine.Trap.INSTANCE);
+
+        ge.movePlayer(Direction.UP);
+        ge.movePlayer(Direction.UP);
+
+        assertNull(ge.getBoard().getItem(8, 1));
+        assertSame(dungeon.engine.Trap.INSTANCE, ge.getBoard().getItem(7, 1));
+    }
+
+    @Test
+    void testMessageLogIsBounded() {
+        GameEngine ge = new GameEngine(0, 10, 4L);
+        ge.setMessageRetention(4);
+        MessageLog log = ge.getMessageLog();
+        long cursor = log.getSequence();
+
+        for (int i = 0; i < 10; i++) {
+            ge.addMessage("message " + i);
+        }
+
+        assertEquals(4, log.size());
+        assertEquals(List.of("message 6", "message 7", "message 8", "message 9"), ge.getMessages());
+
+        List<String> seen = new ArrayList<>();
+        cursor = log.forEachSince(cursor, seen::add);
+        assertEquals(4, seen.size());
+        assertEquals(log.getSequence(), cursor);
+        assertNull(log.get(cursor));
+    }
+
+    @Test
+    void testMessageRetentionKeepsSequence() {
+        // An int third argument is the seed, not a message capacity
+        GameEngine ge = new GameEngine(3, 10, 42);
+        assertEquals(42L, ge.getSeed());
+
+        ge.addMessage("a");
+        ge.addMessage("b");
+        long sequence = ge.getMessageLog().getSequence();
+        ge.setMessageRetention(1);
+        assertEquals(sequence, ge.getMessageLog().getSequence());
+        assertEquals(List.of("b"), ge.getMessages());
+
+        ge.setMessageRetention(8); // growing doesn't bring back dropped messages
+        assertEquals(List.of("b"), ge.getMessages());
+        ge.addMessage("c");
+        assertEquals(List.of("b", "c"), ge.getMessages());
+    }
+
+    @Test
+    void testListenerReceivesEvents() {
+        GameEngine ge = new GameEngine(0);
+        ge.getBoard().setItem(8, 1, dungeon.engine.Gold.INSTANCE);
+        List<GameEvent> events = new ArrayList<>();
+        ge.addListener((event, a, b) -> events.add(event));
+
+        ge.movePlayer(Direction.UP);
+
+        assertEquals(List.of(GameEvent.GOLD_PICKED_UP, GameEvent.MOVED), events);
+        List<String> messages = ge.getMessages();
+        assertEquals("You moved up one step.", messages.get(messages.size() - 1));
+    }
+
+    @Test
+    void testTileListenerReportsConsumedItem() {
+        GameEngine ge = new GameEngine(0);
+        ge.getBoard().setItem(8, 1, dungeon.engine.Gold.INSTANCE);
+        List<int[]> changed = new ArrayList<>();
+        ge.setTileListener((x, y) -> changed.add(new int[]{x, y}));
+
+        ge.movePlayer(Direction.UP);
+
+        assertEquals(1, changed.size());
+        assertArrayEquals(new int[]{8, 1}, changed.get(0));
+    }
+
+    @Test
+    void testPlayerIsNotABoardItem() {
+        GameEngine ge = new GameEngine(0);
+        assertThrows(IllegalArgumentException.class, () -> ge.getBoard().setItem(8, 1, ge.getPlayer()));
+        assertThrows(IllegalArgumentException.class, () -> ge.getBoard().setItemCode(8, 1, Board.PLAYER));
+        assertNotNull(ge.getBoard().getSymbol(9, 1)); // entry untouched
+    }
+
     @Test
     void testAdvanceLevel() {
         GameEngine ge = new GameEngine(3);
         Player p = ge.getPlayer();
 
         // Force ladder at (8,1)
-        ge.getMap()[8][1].setItem(new dungeon.engine.Ladder());
+        ge.getBoard().setItem(8, 1, dungeon.engine.Ladder.INSTANCE);
 
         ge.movePlayer(Direction.UP); // Triggers level advancement
 
@@ -102,11 +237,11 @@ public class TestGameEngine {
         GameEngine ge = new GameEngine(3);
 
         // Simulate reaching ladder in level 1
-        ge.getMap()[8][1].setItem(new dungeon.engine.Ladder());
+        ge.getBoard().setItem(8, 1, dungeon.engine.Ladder.INSTANCE);
         ge.movePlayer(Direction.UP);
 
         // Simulate reaching ladder in level 2
-        ge.getMap()[8][8].setItem(new dungeon.engine.Ladder());
+        ge.getBoard().setItem(8, 8, dungeon.engine.Ladder.INSTANCE);
         ge.getPlayer().setPosition(7, 8); // Move player near the ladder
         ge.movePlayer(Direction.DOWN); // Should win
 
@@ -136,4 +271,139 @@ public class TestGameEngine {
 
         assertEquals(GameState.LOST, ge.getGameState());
     }
+
+    @Test
+    void testBatchMovesMatchSingleMoves() {
+        Direction[] moves = new Direction[60];
+        Random random = new Random(7);
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = Direction.values()[random.nextInt(4)];
+        }
+
+        GameEngine single = new GameEngine(3, 10, 11L);
+        for (Direction d : moves) {
+            single.movePlayer(d);
+        }
+        GameEngine batched = new GameEngine(3, 10, 11L);
+        MoveBatchResult result = batched.movePlayer(moves);
+
+        assertEquals(single.getPlayerScore(), batched.getPlayerScore());
+        assertEquals(single.getPlayerHp(), batched.getPlayerHp());
+        assertEquals(single.getSteps(), batched.getSteps());
+        assertEquals(single.getSteps(), result.getMoved());
+        assertEquals(single.getPlayerScore(), result.getScoreGained());
+        assertEquals(batched.getGameState(), result.getState());
+    }
+
+    @Test
+    void testBatchStopsWhenGameEnds() {
+        GameEngine ge = new GameEngine(0, 10, 5L);
+        ge.getPlayer().takeDamage(8);
+        ge.getBoard().setItemCode(8, 1, Board.TRAP);
+
+        MoveBatchResult result = ge.movePlayer(new Direction[]{Direction.UP, Direction.UP, Direction.UP});
+        assertEquals(1, result.getPlayed());
+        assertEquals(GameState.LOST, result.getState());
+        assertEquals(-2, result.getHpChange());
+    }
+
+    @Test
+    void testPackedBatch() {
+        Replay replay = new Replay(0, 10, 1L);
+        replay.add(Direction.DOWN);  // blocked by the boundary
+        replay.add(Direction.UP);
+        replay.add(Direction.UP);
+        long[] packed = {0};
+        for (int i = 0; i < replay.getMoveCount(); i++) {
+            packed[0] |= (long) replay.getMove(i).ordinal() << (i * 2);
+        }
+
+        GameEngine ge = new GameEngine(0, 10, 1L);
+        MoveBatchResult result = ge.movePlayerPacked(packed, 3);
+        assertEquals(3, result.getPlayed());
+        assertEquals(1, result.getBlocked());
+        assertEquals(7, ge.getPlayerX());
+    }
+
+    @Test
+    void testDeepDungeon() {
+        GameEngine ge = new GameEngine(1, 10, 21L);
+        ge.setDungeonDepth(5, 40);
+        for (int level = 2; level <= 5; level++) {
+            // Each level starts where the previous level's ladder was
+            int ladder = ge.getBoard().indexOf(Board.LADDER);
+            ge.getPlayer().setPosition(ladder / 10, ladder % 10);
+            ge.advanceLevel();
+
+            assertEquals(level, ge.getCurrentLevel());
+            assertEquals(1 + 2 * (level - 1), ge.getDifficulty());
+            assertEquals(100 + 40 * (level - 1), ge.getMaxSteps());
+            assertEquals(ladder / 10, ge.getPlayerX());
+            assertEquals(ladder % 10, ge.getPlayerY());
+            assertEquals(Board.ENTRY, ge.getBoard().getItemCode(ladder / 10, ladder % 10));
+        }
+        ge.advanceLevel();
+        assertEquals(GameState.WON, ge.getGameState());
+        assertThrows(IllegalArgumentException.class, () -> ge.setDungeonDepth(0, 0));
+    }
+
+    @Test
+    void testForkIsIndependent() {
+        GameEngine ge = new GameEngine(5, 10, 31L);
+        ge.movePlayer(Direction.UP);
+        ge.getBoard().setItemCode(5, 5, Board.EMPTY);
+        ge.getBoard().setItemCode(6, 6, Board.EMPTY);
+        GameEngine fork = ge.fork();
+
+        fork.getBoard().setItemCode(5, 5, Board.GOLD);
+        fork.movePlayer(Direction.UP);
+        assertEquals(Board.EMPTY, ge.getBoard().getItemCode(5, 5));
+        assertEquals(1, ge.getSteps());
+        assertEquals(2, fork.getSteps());
+
+        ge.getBoard().setItemCode(6, 6, Board.TRAP);
+        assertEquals(Board.EMPTY, fork.getBoard().getItemCode(6, 6));
+    }
+
+    @Test
+    void testForkSharesUntilChanged() throws Exception {
+        LevelGenerator generator = new LevelGenerator();
+        generator.setCount(Board.GOLD, 4);
+        GameEngine ge = new GameEngine(2, 20, 3L, generator);
+        ge.setMutantMovement(5);
+        GameEngine fork = ge.fork();
+        assertSame(generator, fork.generator);
+        assertSame(ge.mutants, fork.mutants);
+        assertNull(fork.messages);
+
+        // Loading a save into the fork leaves the parent's settings alone
+        GameEngine other = new GameEngine(2, 20, 3L);
+        GameSnapshot.readInto(java.nio.ByteBuffer.wrap(GameSnapshot.toBytes(other)), fork);
+        assertEquals(4, generator.getCount(Board.GOLD));
+        assertNotSame(generator, fork.generator);
+
+        // Moving copies the mutants for whoever moves
+        Mutants shared = ge.mutants;
+        int count = shared.getCount();
+        ge.movePlayer(Direction.UP);
+        assertNotSame(shared, ge.mutants);
+        assertEquals(count, shared.getCount());
+        assertFalse(ge.getMessages().isEmpty());
+    }
+
+    @Test
+    void testForkPlaysLikeOriginal() {
+        GameEngine ge = new GameEngine(8, 10, 17L);
+        ge.movePlayer(Direction.UP);
+        GameEngine fork = ge.fork();
+
+        // Same random state, so the same moves give the same game
+        Direction[] moves = {Direction.UP, Direction.RIGHT, Direction.RIGHT, Direction.UP, Direction.LEFT};
+        ge.movePlayer(moves);
+        fork.movePlayer(moves);
+        assertArrayEquals(ge.getBoard().getTiles(), fork.getBoard().getTiles());
+        assertEquals(ge.getPlayerHp(), fork.getPlayerHp());
+        assertEquals(ge.getPlayerScore(), fork.getPlayerScore());
+        assertEquals(ge.getGameState(), fork.getGameState());
+    }
 }
@@ -0,0 +1,209 @@
+package dungeon.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestGameSnapshot {
+
+    private static void assertSameGame(GameEngine expected, GameEngine actual) {
+        assertEquals(expected.getSize(), actual.getSize());
+        assertEquals(expected.getCurrentLevel(), actual.getCurrentLevel());
+        assertEquals(expected.getDifficulty(), actual.getDifficulty());
+        assertEquals(expected.getSteps(), actual.getSteps());
+        assertEquals(expected.getGameState(), actual.getGameState());
+        assertEquals(expected.getPlayerHp(), actual.getPlayerHp());
+        assertEquals(expected.getPlayerScore(), actual.getPlayerScore());
+        assertEquals(expected.getPlayerX(), actual.getPlayerX());
+        assertEquals(expected.getPlayerY(), actual.getPlayerY());
+        for (int i = 0; i < expected.getSize(); i++) {
+            for (int j = 0; j < expected.getSize(); j++) {
+                assertEquals(expected.getBoard().getTile(i, j), actual.getBoard().getTile(i, j));
+            }
+        }
+    }
+
+    @Test
+    void testGameRandomMatchesRandom() {
+        java.util.Random expected = new java.util.Random(123L);
+        GameRandom actual = new GameRandom(123L);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(expected.nextInt(50), actual.nextInt(50));
+        }
+    }
+
+    @Test
+    void testRoundTripContinuesIdentically() throws IOException {
+        GameEngine ge = new GameEngine(8, 10, 5L);
+        ge.movePlayer(Direction.UP);
+        ge.movePlayer(Direction.RIGHT);
+
+        byte[] bytes = GameSnapshot.toBytes(ge);
+        assertTrue(bytes.length < 256);
+        GameEngine loaded = GameSnapshot.fromBytes(bytes);
+        assertSameGame(ge, loaded);
+
+        // Same RNG state, so the games stay identical from here on
+        Direction[] moves = {Direction.UP, Direction.RIGHT, Direction.UP, Direction.RIGHT, Direction.DOWN};
+        for (Direction move : moves) {
+            ge.movePlayer(move);
+            loaded.movePlayer(move);
+        }
+        assertSameGame(ge, loaded);
+    }
+
+    @Test
+    void testSaveAndLoadFile() throws IOException {
+        Path file = Files.createTempFile("dungeon", ".sav");
+        try {
+            GameEngine ge = new GameEngine(2, 20, 9L);
+            ge.movePlayer(Direction.UP);
+            GameSnapshot.save(ge, file);
+            assertSameGame(ge, GameSnapshot.load(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testArchive() throws IOException {
+        Path file = Files.createTempFile("dungeon", ".arc");
+        try {
+            List<GameEngine> engines = List.of(new GameEngine(1, 10, 1L), new GameEngine(5, 12, 2L), new GameEngine(9, 10, 3L));
+            GameSnapshot.saveArchive(engines, file);
+
+            GameSnapshot.Archive archive = GameSnapshot.openArchive(file);
+            assertEquals(3, archive.size());
+            for (int i = 0; i < engines.size(); i++) {
+                assertSameGame(engines.get(i), archive.load(i));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testDeepDungeonRoundTrip() throws IOException {
+        GameEngine ge = new GameEngine(0, 10, 13L);
+        ge.setDungeonDepth(GameEngine.ENDLESS, 30);
+        ge.advanceLevel();
+        ge.advanceLevel();
+
+        GameEngine loaded = GameSnapshot.fromBytes(GameSnapshot.toBytes(ge));
+        assertSameGame(ge, loaded);
+        assertEquals(GameEngine.ENDLESS, loaded.getLevelCount());
+        assertEquals(30, loaded.getStepsPerLevel());
+
+        // The loaded game knows where the next level starts
+        ge.advanceLevel();
+        loaded.advanceLevel();
+        assertSameGame(ge, loaded);
+        assertEquals(190, loaded.getMaxSteps());
+    }
+
+    @Test
+    void testCustomGeneratorRoundTrip() throws IOException {
+        LevelGenerator generator = new LevelGenerator()
+                .setCount(Board.GOLD, 20)
+                .setCount(Board.TRAP, 0)
+                .setValidate(true)
+                .setMaxAttempts(7);
+        GameEngine ge = new GameEngine(2, 12, 7L, generator);
+        ge.movePlayer(Direction.UP);
+
+        GameEngine loaded = GameSnapshot.fromBytes(GameSnapshot.toBytes(ge));
+        assertEquals(20, loaded.generator.getCount(Board.GOLD));
+        assertTrue(loaded.generator.isValidate());
+        assertEquals(7, loaded.generator.getMaxAttempts());
+
+        // The next level is built with the same settings
+        ge.advanceLevel();
+        loaded.advanceLevel();
+        assertSameGame(ge, loaded);
+    }
+
+    @Test
+    void testReadIntoReusesMutantsAndFog() throws IOException {
+        GameEngine ge = new GameEngine(6, 20, 21L);
+        ge.setMutantMovement(6);
+        ge.setFogOfWar(4);
+        ge.movePlayer(Direction.UP);
+        byte[] bytes = GameSnapshot.toBytes(ge);
+        GameEngine expected = GameSnapshot.fromBytes(bytes);
+
+        Mutants mutants = ge.mutants;
+        FogOfWar fog = ge.getFogOfWar();
+        ge.movePlayer(Direction.UP);
+        ge.movePlayer(Direction.RIGHT);
+        GameSnapshot.readInto(java.nio.ByteBuffer.wrap(bytes), ge);
+
+        assertSame(mutants, ge.mutants);
+        assertSame(fog, ge.getFogOfWar());
+        assertSameGame(expected, ge);
+        assertEquals(expected.mutants.getCount(), ge.mutants.getCount());
+        assertArrayEquals(expected.getFogOfWar().getVisible(), ge.getFogOfWar().getVisible());
+        assertArrayEquals(expected.getFogOfWar().getExplored(), ge.getFogOfWar().getExplored());
+
+        Direction[] moves = {Direction.RIGHT, Direction.UP, Direction.UP, Direction.RIGHT, Direction.UP};
+        for (Direction move : moves) {
+            expected.movePlayer(move);
+            ge.movePlayer(move);
+        }
+        assertSameGame(expected, ge);
+        assertArrayEquals(expected.getFogOfWar().getVisible(), ge.getFogOfWar().getVisible());
+    }
+
+    @Test
+    void testCorruptSaveLeavesEngineUntouched() throws IOException {
+        GameEngine ge = new GameEngine(4, 10, 6L);
+        ge.setMutantMovement(3);
+        ge.movePlayer(Direction.UP);
+        byte[] valid = GameSnapshot.toBytes(new GameEngine(7, 10, 8L));
+        byte[] before = GameSnapshot.toBytes(ge);
+
+        // Offsets: state byte 25, hp byte 26, first tile right after the header
+        int firstTile = valid.length - 100;
+        int[][] corruptions = {{25, 99}, {26, 50}, {9, -1}, {firstTile, 0x3F}};
+        for (int[] corruption : corruptions) {
+            byte[] bytes = valid.clone();
+            bytes[corruption[0]] = (byte) corruption[1];
+            assertThrows(IOException.class, () -> GameSnapshot.readInto(java.nio.ByteBuffer.wrap(bytes), ge));
+            assertThrows(IOException.class, () -> GameSnapshot.fromBytes(bytes));
+        }
+        for (int length : new int[]{3, 40, valid.length - 1}) {
+            byte[] truncated = java.util.Arrays.copyOf(valid, length);
+            assertThrows(IOException.class, () -> GameSnapshot.readInto(java.nio.ByteBuffer.wrap(truncated), ge));
+            assertThrows(IOException.class, () -> GameSnapshot.fromBytes(truncated));
+        }
+        byte[] badSize = valid.clone();
+        java.nio.ByteBuffer.wrap(badSize).putInt(5, -3);
+        assertThrows(IOException.class, () -> GameSnapshot.fromBytes(badSize));
+
+        assertArrayEquals(before, GameSnapshot.toBytes(ge));
+    }
+
+    @Test
+    void testCorruptArchiveIsRejected() throws IOException {
+        Path file = Files.createTempFile("dungeon", ".arc");
+        try {
+            GameSnapshot.saveArchive(List.of(new GameEngine(1, 10, 1L), new GameEngine(2, 10, 2L)), file);
+            GameSnapshot.Archive archive = GameSnapshot.openArchive(file);
+            assertThrows(IndexOutOfBoundsException.class, () -> archive.load(2));
+            assertThrows(IndexOutOfBoundsException.class, () -> archive.load(-1));
+
+            for (int length : new int[]{-4, -100, 3, Integer.MAX_VALUE}) {
+                byte[] bytes = Files.readAllBytes(file);
+                java.nio.ByteBuffer.wrap(bytes).putInt(0, length);
+                Files.write(file, bytes);
+                assertThrows(IOException.class, () -> GameSnapshot.openArchive(file));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package dungeon.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestLeaderboard {
+
+    private static List<Integer> scores(List<Leaderboard.Entry> entries) {
+        List<Integer> scores = new ArrayList<>();
+        for (Leaderboard.Entry entry : entries) {
+            scores.add(entry.getScore());
+        }
+        return scores;
+    }
+
+    @Test
+    void testRankAndTop() throws Exception {
+        Path path = Files.createTempFile("leaderboard", ".log");
+        try (Leaderboard leaderboard = new Leaderboard(path)) {
+            leaderboard.submit("amy", 3, 10);
+            leaderboard.submit("bo", 3, 25);
+            leaderboard.submit("cal", 3, 10);
+            leaderboard.submit("dee", 3, 4);
+            leaderboard.submit("eve", 5, 99);
+
+            assertEquals(4, leaderboard.getCount(3));
+            assertEquals(1, leaderboard.getCount(5));
+            assertEquals(0, leaderboard.getCount(0));
+
+            assertEquals(1, leaderboard.getRank(3, 30));
+            assertEquals(2, leaderboard.getRank(3, 10)); // ties share a rank
+            assertEquals(4, leaderboard.getRank(3, 4));
+            assertEquals(5, leaderboard.getRank(3, 0));
+
+            List<Leaderboard.Entry> top = leaderboard.getTop(3, 3);
+            assertEquals(List.of(25, 10, 10), scores(top));
+            assertEquals("amy", top.get(1).getName()); // earlier result first on ties
+            assertEquals(4, leaderboard.getTop(3, 100).size());
+            assertTrue(leaderboard.getTop(0, 5).isEmpty());
+
+            assertThrows(IllegalArgumentException.class, () -> leaderboard.submit("x", 11, 1));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void testRebuildFromLog() throws Exception {
+        Path path = Files.createTempFile("leaderboard", ".log");
+        try {
+            try (Leaderboard leaderboard = new Leaderboard(path)) {
+                for (int i = 0; i < 200; i++) {
+                    leaderboard.submit("p" + i, i % 3, (i * 37) % 101);
+                }
+                leaderboard.submit("  two\nlines  ", 1, 50);
+            }
+            // A line cut short by a crash
+            Files.writeString(path, "17000 2 4", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+            try (Leaderboard reopened = new Leaderboard(path)) {
+                assertEquals(1, reopened.getSkippedLines());
+                assertEquals(67, reopened.getCount(0));
+                assertEquals(67, reopened.getCount(1) - 1);
+                assertEquals(66, reopened.getCount(2));
+                assertTrue(reopened.getTop(1, 200).stream().anyMatch(e -> e.getName().equals("two lines")));
+
+                // The new result doesn't join the broken line
+                reopened.submit("last", 2, 1000);
+            }
+            try (Leaderboard again = new Leaderboard(path)) {
+                assertEquals(1, again.getSkippedLines());
+                assertEquals("last", again.getTop(2, 1).get(0).getName());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void testConcurrentSubmitsAndReads() throws Exception {
+        Path path = Files.createTempFile("leaderboard", ".log");
+        try (Leaderboard leaderboard = new Leaderboard(path)) {
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                int id = t;
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < 250; i++) {
+                        try {
+                            leaderboard.submit("t" + id, 4, i);
+                        } catch (Exception e) {
+                            throw new RuntimeException(e);
+                        }
+                        // Readers always see a sorted board
+                        List<Integer> top = scores(leaderboard.getTop(4, 10));
+                        for (int k = 1; k < top.size(); k++) {
+                            assertTrue(top.get(k - 1) >= top.get(k));
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(1000, leaderboard.getCount(4));
+            assertEquals(List.of(249, 249, 249, 249, 248), scores(leaderboard.getTop(4, 5)));
+            assertEquals(5, leaderboard.getRank(4, 248));
+            assertEquals(1000, Files.readAllLines(path).size());
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void testSubmitFinishedGame() throws Exception {
+        Path path = Files.createTempFile("leaderboard", ".log");
+        try (Leaderboard leaderboard = new Leaderboard(path)) {
+            GameEngine ge = new GameEngine(2, 10, 5L);
+            ge.getPlayer().addScore(12);
+            ge.advanceLevel();
+            assertEquals(2, ge.getStartingDifficulty());
+
+            Leaderboard.Entry entry = leaderboard.submit("max", ge);
+            assertEquals(2, entry.getDifficulty());
+            assertEquals(12, entry.getScore());
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
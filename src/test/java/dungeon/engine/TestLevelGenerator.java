@@ -0,0 +1,130 @@
+package dungeon.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestLevelGenerator {
+
+    // Walled board like the one GameEngine builds
+    private static Board walledBoard(int size) {
+        Board board = new Board(size);
+        for (int i = 0; i < size; i++) {
+            board.setWall(0, i, true);
+            board.setWall(size - 1, i, true);
+            board.setWall(i, 0, true);
+            board.setWall(i, size - 1, true);
+        }
+        return board;
+    }
+
+    private static int count(Board board, byte code) {
+        int n = 0;
+        for (int i = 0; i < board.getSize(); i++) {
+            for (int j = 0; j < board.getSize(); j++) {
+                if (board.getItemCode(i, j) == code) {
+                    n++;
+                }
+            }
+        }
+        return n;
+    }
+
+    @Test
+    void testDefaultCounts() {
+        Board board = walledBoard(10);
+        assertTrue(new LevelGenerator().generate(board, 9, 1, 4, 100, new Random(1)));
+        assertEquals(1, count(board, Board.LADDER));
+        assertEquals(5, count(board, Board.TRAP));
+        assertEquals(5, count(board, Board.GOLD));
+        assertEquals(3, count(board, Board.MELEE_MUTANT));
+        assertEquals(4, count(board, Board.RANGED_MUTANT));
+        assertEquals(2, count(board, Board.HEALTH_POTION));
+    }
+
+    @Test
+    void testCustomCounts() {
+        LevelGenerator generator = new LevelGenerator()
+                .setCount(Board.GOLD, 20)
+                .setCount(Board.TRAP, 0)
+                .setCount(Board.RANGED_MUTANT, 1);
+        GameEngine ge = new GameEngine(8, 10, 3L, generator);
+        assertEquals(20, count(ge.getBoard(), Board.GOLD));
+        assertEquals(0, count(ge.getBoard(), Board.TRAP));
+        assertEquals(1, count(ge.getBoard(), Board.RANGED_MUTANT));
+
+        assertThrows(IllegalArgumentException.class, () -> generator.setCount(Board.ENTRY, 1));
+        assertThrows(IllegalArgumentException.class, () -> generator.setCount(Board.GOLD, -1));
+    }
+
+    @Test
+    void testStopsWhenBoardIsFull() {
+        // 4x4 map has 3 free inside tiles besides the level 2 entry
+        Board board = walledBoard(4);
+        new LevelGenerator().generate(board, 2, 2, 0, 100, new Random(5));
+        assertEquals(1, count(board, Board.LADDER));
+        assertEquals(2, count(board, Board.TRAP));
+        assertEquals(Board.EMPTY, board.getItemCode(2, 2));
+    }
+
+    @Test
+    void testValidatedLevelsHaveSafePathToLadder() {
+        LevelGenerator generator = new LevelGenerator()
+                .setCount(Board.TRAP, 25)
+                .setValidate(true);
+        PathFinder finder = new PathFinder();
+        for (long seed = 0; seed < 50; seed++) {
+            Board board = walledBoard(10);
+            assertTrue(generator.generate(board, 9, 1, 10, 100, new Random(seed)));
+            assertTrue(finder.distanceToLadder(board, 9, 1) != PathFinder.UNREACHABLE);
+        }
+    }
+
+    @Test
+    void testValidationGivesUp() {
+        // Every free tile is a trap, so the ladder is never reachable safely
+        LevelGenerator generator = new LevelGenerator()
+                .setCount(Board.TRAP, 100)
+                .setValidate(true)
+                .setMaxAttempts(3);
+        Board board = walledBoard(10);
+        assertFalse(generator.generate(board, 9, 1, 0, 100, new Random(1)));
+    }
+
+    @Test
+    void testSameSeedSameLevel() {
+        GameEngine a = new GameEngine(5, 12, 77L);
+        GameEngine b = new GameEngine(5, 12, 77L);
+        assertArrayEquals(a.getBoard().getTiles(), b.getBoard().getTiles());
+    }
+
+    @Test
+    void testImpossibleLevelIsRejected() {
+        // No ladder, so no attempt can ever validate
+        LevelGenerator generator = new LevelGenerator()
+                .setCount(Board.LADDER, 0)
+                .setValidate(true)
+                .setMaxAttempts(3);
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> new GameEngine(0, 10, 1L, generator));
+        assertTrue(e.getMessage().contains("3 attempts"));
+
+        // Without validation the same settings are played as they are
+        generator.setValidate(false);
+        assertEquals(-1, new GameEngine(0, 10, 1L, generator).getBoard().indexOf(Board.LADDER));
+    }
+
+    @Test
+    void testImpossiblePrefetchedLevelIsRejected() {
+        // Level 1 is playable, but level 2 is built on the pool without a ladder
+        LevelGenerator generator = new LevelGenerator().setValidate(true).setMaxAttempts(2);
+        try (LevelPool pool = new LevelPool()) {
+            GameEngine ge = new GameEngine(0, 10, 1L, generator);
+            generator.setCount(Board.LADDER, 0);
+            ge.setLevelPool(pool);
+            assertThrows(IllegalStateException.class, ge::advanceLevel);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package dungeon.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestLevelPool {
+
+    // Walks the player to the ladder and takes it
+    private static void reachLevel2(GameEngine ge) {
+        PathFinder finder = new PathFinder();
+        while (ge.getCurrentLevel() == 1 && ge.getGameState() == GameState.PLAYING) {
+            Direction d = finder.nextStepToLadder(ge.getBoard(), ge.getPlayerX(), ge.getPlayerY());
+            if (d == null) {
+                // No safe path, go straight through whatever is in the way
+                ge.advanceLevel();
+                return;
+            }
+            ge.movePlayer(d);
+        }
+    }
+
+    @Test
+    void testPooledGameMatchesInlineGame() {
+        try (LevelPool pool = new LevelPool()) {
+            for (long seed = 0; seed < 20; seed++) {
+                GameEngine inline = new GameEngine(3, 10, seed);
+                GameEngine pooled = new GameEngine(3, 10, seed);
+                pooled.setLevelPool(pool);
+
+                reachLevel2(inline);
+                reachLevel2(pooled);
+                assertEquals(2, pooled.getCurrentLevel());
+                assertArrayEquals(inline.getBoard().getTiles(), pooled.getBoard().getTiles());
+            }
+        }
+    }
+
+    @Test
+    void testLevelDoesNotDependOnMoves() {
+        GameEngine a = new GameEngine(5, 10, 9L);
+        GameEngine b = new GameEngine(5, 10, 9L);
+        b.movePlayer(Direction.UP);
+        b.movePlayer(Direction.RIGHT);
+        a.advanceLevel();
+        b.advanceLevel();
+        assertArrayEquals(a.getBoard().getTiles(), b.getBoard().getTiles());
+    }
+
+    @Test
+    void testClosedPoolBuildsInline() {
+        LevelPool pool = new LevelPool();
+        pool.close();
+        GameEngine ge = new GameEngine(0, 10, 4L);
+        ge.setLevelPool(pool);
+        int ladder = ge.getBoard().indexOf(Board.LADDER);
+        ge.advanceLevel();
+        assertEquals(2, ge.getCurrentLevel());
+        assertEquals(Board.ENTRY, ge.getBoard().getItemCode(ladder / 10, ladder % 10));
+    }
+
+    @Test
+    void testDeepDungeonPrefetch() {
+        try (LevelPool pool = new LevelPool()) {
+            GameEngine inline = new GameEngine(0, 10, 8L);
+            GameEngine pooled = new GameEngine(0, 10, 8L);
+            inline.setDungeonDepth(GameEngine.ENDLESS, 50);
+            pooled.setDungeonDepth(GameEngine.ENDLESS, 50);
+            pooled.setLevelPool(pool);
+            for (int level = 2; level <= 6; level++) {
+                inline.advanceLevel();
+                pooled.advanceLevel();
+                assertEquals(level, pooled.getCurrentLevel());
+                assertArrayEquals(inline.getBoard().getTiles(), pooled.getBoard().getTiles());
+            }
+        }
+    }
+
+    @Test
+    void testCloseWithQueuedPrefetch() {
+        // One thread and several big levels, so most prefetches are still queued at close
+        LevelPool pool = new LevelPool(1);
+        GameEngine[] pooled = new GameEngine[6];
+        for (int i = 0; i < pooled.length; i++) {
+            pooled[i] = new GameEngine(0, 200, i);
+            pooled[i].setLevelPool(pool);
+        }
+        pool.close();
+        for (int i = 0; i < pooled.length; i++) {
+            GameEngine ge = pooled[i];
+            assertTimeoutPreemptively(Duration.ofSeconds(30), ge::advanceLevel);
+            GameEngine inline = new GameEngine(0, 200, i);
+            inline.advanceLevel();
+            assertEquals(2, ge.getCurrentLevel());
+            assertArrayEquals(inline.getBoard().getTiles(), ge.getBoard().getTiles());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package dungeon.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestMutants {
+
+    // Level 1 engine with every item removed from the inside of the map
+    private static GameEngine emptyEngine(int size) {
+        GameEngine ge = new GameEngine(0, size, 1L);
+        for (int i = 1; i < size - 1; i++) {
+            for (int j = 1; j < size - 1; j++) {
+                ge.getBoard().setItemCode(i, j, Board.EMPTY);
+            }
+        }
+        return ge;
+    }
+
+    @Test
+    void testMeleeMutantChasesPlayer() {
+        GameEngine ge = emptyEngine(10);
+        ge.getBoard().setItemCode(3, 1, Board.MELEE_MUTANT);
+        ge.setMutantMovement(8);
+
+        ge.movePlayer(Direction.UP); // player at (8,1), mutant steps down to (4,1)
+        assertEquals(Board.EMPTY, ge.getBoard().getItemCode(3, 1));
+        assertEquals(Board.MELEE_MUTANT, ge.getBoard().getItemCode(4, 1));
+
+        ge.movePlayer(Direction.UP); // (7,1), mutant to (5,1)
+        ge.movePlayer(Direction.UP); // (6,1), mutant stays next to the player
+        assertEquals(Board.MELEE_MUTANT, ge.getBoard().getItemCode(5, 1));
+
+        ge.movePlayer(Direction.UP); // fight it
+        assertEquals(0, ge.mutants.getCount());
+        assertEquals(Board.EMPTY, ge.getBoard().getItemCode(5, 1));
+    }
+
+    @Test
+    void testMeleeMutantHitsOnArrival() {
+        GameEngine ge = emptyEngine(10);
+        ge.getBoard().setItemCode(6, 1, Board.MELEE_MUTANT);
+        ge.setMutantMovement(8);
+        int hp = ge.getPlayer().getHp();
+
+        ge.movePlayer(Direction.UP); // player at (8,1), mutant steps down to (7,1) and hits
+        assertEquals(Board.MELEE_MUTANT, ge.getBoard().getItemCode(7, 1));
+        assertEquals(hp - 2, ge.getPlayer().getHp());
+
+        ge.movePlayer(Direction.RIGHT); // (8,2): mutant follows to (8,1) and hits again
+        assertEquals(Board.MELEE_MUTANT, ge.getBoard().getItemCode(8, 1));
+        assertEquals(hp - 4, ge.getPlayer().getHp());
+        assertTrue(ge.getMessages().contains(GameEvent.MELEE_MUTANT_HIT.describe(2, 0)));
+    }
+
+    @Test
+    void testBoardChangesAreTracked() {
+        GameEngine ge = emptyEngine(10);
+        ge.setMutantMovement(8);
+        ge.getBoard().setItemCode(3, 1, Board.MELEE_MUTANT);
+        ge.getBoard().setItemCode(3, 5, Board.RANGED_MUTANT);
+        ge.getBoard().setItemCode(3, 5, Board.EMPTY);
+        assertEquals(1, ge.mutants.getCount());
+
+        ge.movePlayer(Direction.UP);
+        assertEquals(Board.MELEE_MUTANT, ge.getBoard().getItemCode(4, 1));
+
+        // Replacing the mutant with gold stops it moving
+        ge.getBoard().setItemCode(4, 1, Board.GOLD);
+        ge.movePlayer(Direction.UP);
+        assertEquals(0, ge.mutants.getCount());
+        assertEquals(Board.GOLD, ge.getBoard().getItemCode(4, 1));
+        assertEquals(Board.EMPTY, ge.getBoard().getItemCode(5, 1));
+    }
+
+    @Test
+    void testRangedMutantStopsInRange() {
+        GameEngine ge = emptyEngine(10);
+        ge.getBoard().setItemCode(8, 6, Board.RANGED_MUTANT);
+        ge.setMutantMovement(8);
+
+        ge.movePlayer(Direction.UP); // player at (8,1): mutant moves along the row
+        assertEquals(Board.RANGED_MUTANT, ge.getBoard().getItemCode(8, 5));
+        ge.movePlayer(Direction.RIGHT); // (8,2): mutant to (8,4), 2 tiles away
+        ge.movePlayer(Direction.LEFT);  // (8,1): mutant to (8,3)
+        ge.movePlayer(Direction.RIGHT); // (8,2): in range, stays
+        assertEquals(Board.RANGED_MUTANT, ge.getBoard().getItemCode(8, 3));
+    }
+
+    @Test
+    void testBlockedByWallsAndItems() {
+        GameEngine ge = emptyEngine(10);
+        ge.getBoard().setItemCode(4, 1, Board.MELEE_MUTANT);
+        ge.getBoard().setItemCode(5, 1, Board.GOLD);
+        ge.getBoard().setWall(4, 2, true);
+        ge.setMutantMovement(8);
+
+        ge.movePlayer(Direction.UP);
+        assertEquals(Board.MELEE_MUTANT, ge.getBoard().getItemCode(4, 1));
+        assertEquals(Board.GOLD, ge.getBoard().getItemCode(5, 1));
+    }
+
+    @Test
+    void testOnlyNearbyMutantsMove() {
+        GameEngine ge = emptyEngine(200);
+        ge.getBoard().setItemCode(150, 150, Board.MELEE_MUTANT);
+        ge.getBoard().setItemCode(193, 1, Board.MELEE_MUTANT);
+        ge.setMutantMovement(8);
+
+        ge.movePlayer(Direction.UP);
+        assertEquals(Board.MELEE_MUTANT, ge.getBoard().getItemCode(150, 150));
+        assertEquals(Board.MELEE_MUTANT, ge.getBoard().getItemCode(194, 1));
+    }
+
+    @Test
+    void testForkAndSnapshotKeepMovement() throws java.io.IOException {
+        GameEngine ge = new GameEngine(6, 20, 12L);
+        ge.setMutantMovement(6);
+        ge.movePlayer(Direction.UP);
+
+        GameEngine fork = ge.fork();
+        GameEngine loaded = GameSnapshot.fromBytes(GameSnapshot.toBytes(ge));
+        assertEquals(6, loaded.getMutantRadius());
+
+        Direction[] moves = {Direction.UP, Direction.RIGHT, Direction.UP, Direction.RIGHT, Direction.RIGHT, Direction.UP};
+        ge.movePlayer(moves);
+        fork.movePlayer(moves);
+        loaded.movePlayer(moves);
+        assertArrayEquals(ge.getBoard().getTiles(), fork.getBoard().getTiles());
+        assertArrayEquals(ge.getBoard().getTiles(), loaded.getBoard().getTiles());
+    }
+}
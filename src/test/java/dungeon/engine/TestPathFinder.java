@@ -0,0 +1,73 @@
+package dungeon.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestPathFinder {
+
+    // Level 1 engine with every item removed from the inside of the map
+    private static GameEngine emptyEngine() {
+        GameEngine ge = new GameEngine(0, 10, 1L);
+        for (int i = 1; i < 9; i++) {
+            for (int j = 1; j < 9; j++) {
+                ge.getBoard().setItemCode(i, j, Board.EMPTY);
+            }
+        }
+        return ge;
+    }
+
+    @Test
+    void testDistanceToLadder() {
+        GameEngine ge = emptyEngine();
+        Board board = ge.getBoard();
+        board.setItemCode(5, 1, Board.LADDER);
+
+        PathFinder finder = new PathFinder();
+        // Player starts at (9,1) in the wall, 4 steps below the ladder
+        assertEquals(4, finder.distanceToLadder(board, 9, 1));
+        assertEquals(Direction.UP, finder.nextStepToLadder(board, 9, 1));
+    }
+
+    @Test
+    void testPathAvoidsTraps() {
+        GameEngine ge = emptyEngine();
+        Board board = ge.getBoard();
+        board.setItemCode(6, 1, Board.LADDER);
+        board.setItemCode(7, 1, Board.TRAP);
+
+        PathFinder finder = new PathFinder();
+        assertEquals(5, finder.distanceToLadder(board, 9, 1));
+        assertEquals(Direction.RIGHT, finder.nextStepToLadder(board, 8, 1));
+    }
+
+    @Test
+    void testFieldUpdatesWhenGoldIsTaken() {
+        GameEngine ge = emptyEngine();
+        Board board = ge.getBoard();
+        board.setItemCode(8, 1, Board.GOLD);
+        board.setItemCode(8, 5, Board.GOLD);
+
+        PathFinder finder = new PathFinder();
+        assertEquals(1, finder.distanceToGold(board, 9, 1));
+
+        ge.movePlayer(Direction.UP); // picks up the gold at (8,1)
+        assertEquals(4, finder.distanceToGold(board, 8, 1));
+    }
+
+    @Test
+    void testUnreachable() {
+        GameEngine ge = emptyEngine();
+        Board board = ge.getBoard();
+        PathFinder finder = new PathFinder();
+        assertEquals(PathFinder.UNREACHABLE, finder.distanceToLadder(board, 9, 1));
+        assertNull(finder.nextStepToLadder(board, 9, 1));
+    }
+
+    @Test
+    void testPolicyBeatsRandom() {
+        SimulationResult random = new BatchSimulator(MovePolicy.RANDOM).run(3, 300, 5L);
+        SimulationResult guided = new BatchSimulator(PathFinder.policy()).run(3, 300, 5L);
+        assertTrue(guided.getWinRate() > random.getWinRate());
+    }
+}
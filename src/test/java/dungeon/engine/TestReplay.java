@@ -0,0 +1,126 @@
+package dungeon.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestReplay {
+
+    @Test
+    void testSameSeedSameLayout() {
+        GameEngine a = new GameEngine(5, 10, 1234L);
+        GameEngine b = new GameEngine(5, 10, 1234L);
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 10; j++) {
+                assertEquals(a.getBoard().getTile(i, j), b.getBoard().getTile(i, j));
+            }
+        }
+    }
+
+    @Test
+    void testPackedMoves() {
+        Replay replay = new Replay(3, 10, 1L);
+        Direction[] directions = Direction.values();
+        for (int i = 0; i < 100; i++) {
+            replay.add(directions[i % 4]);
+        }
+        assertEquals(100, replay.getMoveCount());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(directions[i % 4], replay.getMove(i));
+        }
+    }
+
+    @Test
+    void testReplayReproducesGame() {
+        GameEngine ge = new GameEngine(6, 10, 42L);
+        Replay replay = Replay.record(ge);
+        Random moves = new Random(7);
+        while (ge.getGameState() == GameState.PLAYING) {
+            ge.movePlayer(Direction.values()[moves.nextInt(4)]);
+        }
+
+        GameEngine replayed = replay.play();
+        assertEquals(ge.getGameState(), replayed.getGameState());
+        assertEquals(ge.getPlayer().getScore(), replayed.getPlayer().getScore());
+        assertEquals(ge.getPlayer().getHp(), replayed.getPlayer().getHp());
+        assertEquals(ge.getSteps(), replayed.getSteps());
+        assertTrue(replay.verify(ge.getPlayer().getScore(), ge.getGameState()));
+    }
+
+    @Test
+    void testWriteAndRead() throws IOException {
+        GameEngine ge = new GameEngine(4, 10, 7L);
+        Replay replay = Replay.record(ge);
+        for (int i = 0; i < 40; i++) {
+            ge.movePlayer(i % 2 == 0 ? Direction.UP : Direction.RIGHT);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        replay.write(new DataOutputStream(bytes));
+        Replay read = Replay.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(replay.getSeed(), read.getSeed());
+        assertEquals(replay.getMoveCount(), read.getMoveCount());
+        for (int i = 0; i < replay.getMoveCount(); i++) {
+            assertEquals(replay.getMove(i), read.getMove(i));
+        }
+    }
+
+    @Test
+    void testKeepsGameSettings() throws IOException {
+        LevelGenerator generator = new LevelGenerator().setCount(Board.GOLD, 9).setValidate(true).setMaxAttempts(5);
+        GameEngine ge = new GameEngine(2, 14, 21L, generator);
+        ge.setDungeonDepth(4, 30);
+        ge.setMutantMovement(3);
+        Replay replay = Replay.record(ge);
+        Random moves = new Random(3);
+        while (ge.getGameState() == GameState.PLAYING) {
+            if (ge.getSteps() % 25 == 24) {
+                ge.advanceLevel();
+            } else {
+                ge.movePlayer(Direction.values()[moves.nextInt(4)]);
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        replay.write(new DataOutputStream(bytes));
+        Replay read = Replay.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(4, read.getLevelCount());
+        assertEquals(30, read.getStepsPerLevel());
+        assertEquals(3, read.getMutantRadius());
+
+        GameEngine replayed = read.play();
+        assertEquals(9, replayed.generator.getCount(Board.GOLD));
+        assertEquals(ge.getCurrentLevel(), replayed.getCurrentLevel());
+        assertEquals(ge.getGameState(), replayed.getGameState());
+        assertEquals(ge.getPlayerScore(), replayed.getPlayerScore());
+        assertArrayEquals(ge.getBoard().getTiles(), replayed.getBoard().getTiles());
+    }
+
+    @Test
+    void testRecordsStartingDifficulty() {
+        GameEngine ge = new GameEngine(3, 10, 8L);
+        ge.advanceLevel();
+        assertEquals(3, Replay.record(ge).getDifficulty());
+    }
+
+    @Test
+    void testRejectsBadMoveCount() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new Replay(3, 10, 1L).write(new DataOutputStream(bytes));
+        byte[] data = bytes.toByteArray();
+        for (int count : new int[]{-1, Integer.MAX_VALUE, 1 << 30}) {
+            // The move count is the last int of a replay without moves
+            java.nio.ByteBuffer.wrap(data).putInt(data.length - 4, count);
+            assertThrows(IOException.class,
+                    () -> Replay.read(new DataInputStream(new ByteArrayInputStream(data))));
+        }
+    }
+}
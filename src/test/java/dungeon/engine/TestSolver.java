@@ -0,0 +1,66 @@
+package dungeon.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestSolver {
+
+    // Plays the moves on a fresh engine with the same seed
+    private static GameEngine replay(int difficulty, long seed, Direction[] moves) {
+        GameEngine ge = new GameEngine(difficulty, 10, seed);
+        for (Direction d : moves) {
+            ge.movePlayer(d);
+        }
+        return ge;
+    }
+
+    @Test
+    void testSolutionReplays() {
+        Solver.Solution solution = new Solver(0, 10, 42L).solve();
+        assertTrue(solution.isExact());
+
+        GameEngine ge = replay(0, 42L, solution.getMoves());
+        assertEquals(solution.getScore(), ge.getPlayerScore());
+        assertEquals(solution.getOutcome(), ge.getGameState());
+    }
+
+    @Test
+    void testNodeLimit() {
+        Solver.Solution solution = new Solver(3, 10, 42L, 2, 1000).solve();
+        assertFalse(solution.isExact());
+
+        GameEngine ge = replay(3, 42L, solution.getMoves());
+        assertEquals(solution.getScore(), ge.getPlayerScore());
+    }
+
+    @Test
+    void testSolveTwice() {
+        Solver solver = new Solver(0, 10, 42L);
+        Solver.Solution fromStart = solver.solve();
+
+        // A worse position: a few steps wasted walking back and forth
+        GameEngine position = new GameEngine(0, 10, 42L);
+        for (int i = 0; i < 6; i++) {
+            position.movePlayer(i % 2 == 0 ? Direction.UP : Direction.DOWN);
+        }
+        int steps = position.getSteps();
+        Solver.Solution fromPosition = solver.solve(position);
+        Solver.Solution fresh = new Solver(0, 10, 42L).solve(position);
+        assertEquals(fresh.getScore(), fromPosition.getScore());
+        assertEquals(steps, position.getSteps()); // left untouched
+
+        GameEngine ge = replay(0, 42L, new Direction[0]);
+        for (int i = 0; i < 6; i++) {
+            ge.movePlayer(i % 2 == 0 ? Direction.UP : Direction.DOWN);
+        }
+        for (Direction d : fromPosition.getMoves()) {
+            ge.movePlayer(d);
+        }
+        assertEquals(fromPosition.getScore(), ge.getPlayerScore());
+
+        // And back to the start, which the last search must not have spoiled
+        assertEquals(fromStart.getScore(), solver.solve().getScore());
+        assertThrows(IllegalArgumentException.class, () -> solver.solve(new GameEngine(0, 10, 43L)));
+    }
+}
@@ -0,0 +1,99 @@
+package dungeon.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestVectorEnv {
+
+    @Test
+    void testMatchesSingleEngines() {
+        VectorEnv env = new VectorEnv(16, 4, 10, 1L);
+        GameEngine[] engines = new GameEngine[16];
+        for (int i = 0; i < engines.length; i++) {
+            engines[i] = new GameEngine(4, 10, env.getSeed(i));
+        }
+
+        SplittableRandom random = new SplittableRandom(2);
+        int[] actions = new int[16];
+        for (int step = 0; step < 300; step++) {
+            for (int i = 0; i < actions.length; i++) {
+                actions[i] = random.nextInt(4);
+            }
+            env.step(actions);
+            for (int i = 0; i < engines.length; i++) {
+                engines[i].movePlayer(Direction.values()[actions[i]]);
+                if (env.getDones()[i] == 1) {
+                    // Slot was reset with the next seed of its stream
+                    assertNotEquals(GameState.PLAYING, engines[i].getGameState());
+                    engines[i] = new GameEngine(4, 10, env.getSeed(i));
+                } else {
+                    assertEquals(engines[i].getPlayerScore(), env.getScore()[i]);
+                    assertEquals(engines[i].getPlayerHp(), env.getHp()[i]);
+                    assertEquals(engines[i].getPlayerX(), env.getX()[i]);
+                    assertEquals(engines[i].getSteps(), env.getSteps()[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testTilesMirrorBoards() {
+        VectorEnv env = new VectorEnv(8, 2, 10, 3L);
+        int[] actions = new int[8];
+        for (int step = 0; step < 50; step++) {
+            Arrays.fill(actions, step % 3 == 0 ? Direction.RIGHT.ordinal() : Direction.UP.ordinal());
+            env.step(actions);
+        }
+        for (int i = 0; i < 8; i++) {
+            byte[] expected = env.getEngine(i).getBoard().getTiles();
+            byte[] actual = new byte[100];
+            env.getTiles().get(i * 100, actual);
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void testFinishedGamesAreReset() {
+        VectorEnv env = new VectorEnv(2, 0, 10, 5L);
+        long firstSeed = env.getSeed(0);
+        GameEngine engine = env.getEngine(0);
+        Board board = engine.getBoard();
+        int[] actions = {Direction.DOWN.ordinal(), Direction.DOWN.ordinal()};
+
+        // Moving into the boundary never ends the game, so use up the steps instead
+        env.getEngine(0).steps = env.getEngine(0).getMaxSteps() - 1;
+        actions[0] = Direction.UP.ordinal();
+        env.step(actions);
+
+        assertEquals(1, env.getDones()[0]);
+        assertEquals(0, env.getDones()[1]);
+        assertNotEquals(firstSeed, env.getSeed(0));
+        assertEquals(0, env.getSteps()[0]);
+        assertEquals(10, env.getHp()[0]);
+
+        // Same engine and board, now holding the new game
+        assertSame(engine, env.getEngine(0));
+        assertSame(board, engine.getBoard());
+        assertArrayEquals(new GameEngine(0, 10, env.getSeed(0)).getBoard().getTiles(), board.getTiles());
+        byte[] tiles = new byte[100];
+        env.getTiles().get(0, tiles);
+        assertArrayEquals(board.getTiles(), tiles);
+    }
+
+    @Test
+    void testRejectsBadArguments() {
+        VectorEnv env = new VectorEnv(2, 0, 10, 5L);
+        assertThrows(IllegalArgumentException.class, () -> env.step(new int[]{0, 4}));
+        assertThrows(IllegalArgumentException.class, () -> env.step(new int[]{-1, 0}));
+        assertThrows(IllegalArgumentException.class, () -> env.step(new int[]{0}));
+        assertEquals(0, env.getSteps()[0]); // nothing was played
+
+        // 50,000 games of 300 x 300 tiles would overflow the buffer index
+        assertThrows(IllegalArgumentException.class, () -> new VectorEnv(50_000, 0, 300, 1L));
+        assertThrows(IllegalArgumentException.class, () -> new VectorEnv(0, 0, 10, 1L));
+    }
+}
@@ -0,0 +1,140 @@
+package dungeon.server;
+
+import dungeon.engine.LatencyHistogram;
+import dungeon.engine.Leaderboard;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestGameServer {
+
+    @Test
+    void testPlayOverLoopback() throws IOException {
+        try (GameServer server = new GameServer(0)) {
+            server.start();
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+
+                out.println("NEW 3 42");
+                assertTrue(in.readLine().startsWith("OK "));
+                assertTrue(in.readLine().startsWith("STATE PLAYING"));
+
+                out.println("MOVE d"); // into the wall below the entry
+                assertEquals("MSG You tried to move down but hit the boundary.", in.readLine());
+                assertTrue(in.readLine().contains("steps=0"));
+
+                out.println("MOVE u");
+                String line;
+                do {
+                    line = in.readLine();
+                } while (line.startsWith("MSG"));
+                assertTrue(line.contains("steps=1"));
+
+                out.println("STATS");
+                String stats = in.readLine();
+                assertTrue(stats.contains("sessions=1"));
+                assertTrue(stats.contains("moves=2"));
+
+                out.println("QUIT");
+                assertEquals("BYE", in.readLine());
+            }
+        }
+    }
+
+    @Test
+    void testBatchedMoves() throws IOException {
+        try (GameServer server = new GameServer(0)) {
+            server.start();
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+
+                out.println("NEW 0 42");
+                in.readLine();
+                in.readLine();
+
+                out.println("MOVES dur");
+                String line;
+                do {
+                    line = in.readLine();
+                } while (line.startsWith("MSG"));
+                assertTrue(line.startsWith("BATCH played=3 moved=2"));
+                assertTrue(in.readLine().contains("steps=2"));
+
+                out.println("MOVES ux");
+                assertTrue(in.readLine().startsWith("ERR"));
+            }
+        }
+    }
+
+    @Test
+    void testMoveBeforeNewIsRejected() throws IOException {
+        try (GameServer server = new GameServer(0)) {
+            server.start();
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+                out.println("MOVE u");
+                assertTrue(in.readLine().startsWith("ERR"));
+            }
+        }
+    }
+
+    @Test
+    void testFinishedGameIsRanked() throws IOException {
+        Path path = Files.createTempFile("leaderboard", ".log");
+        try (GameServer server = new GameServer(0)) {
+            server.setLeaderboard(new Leaderboard(path));
+            server.start();
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+
+                out.println("NAME Tester");
+                assertEquals("OK", in.readLine());
+                out.println("NEW 0 42");
+                in.readLine();
+                in.readLine();
+
+                // Up and down until the steps run out (or the traps win)
+                out.println("MOVES " + "ud".repeat(60));
+                String line;
+                do {
+                    line = in.readLine();
+                } while (!line.startsWith("STATE"));
+                assertFalse(line.startsWith("STATE PLAYING"));
+                assertEquals("RANK 0 1 1", in.readLine());
+
+                out.println("TOP 0");
+                assertTrue(in.readLine().matches("ENTRY 1 -?\\d+ Tester"));
+                assertEquals("END", in.readLine());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void testLatencyHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(100);
+        }
+        histogram.record(1_000_000);
+        assertEquals(100, histogram.getCount());
+        assertEquals(127, histogram.getPercentile(50));
+        assertEquals(127, histogram.getPercentile(99));
+        assertTrue(histogram.getPercentile(100) >= 1_000_000);
+    }
+}